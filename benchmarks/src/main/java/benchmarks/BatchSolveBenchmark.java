@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import circuit.Circuit;
+import circuit.CircuitValue;
+import solver.BatchCircuitValue;
+import solver.ParallelCircuitSolver;
+
+/**
+ * Solves the whole workload per operation, either with one {@code solve} call per circuit
+ * or with a single {@code solveAll}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BatchSolveBenchmark {
+  @Param({"0"})
+  public int parallelism;
+
+  private ParallelCircuitSolver solver;
+
+  @Setup(Level.Trial)
+  public void startSolver() {
+    solver = parallelism == 0 ? new ParallelCircuitSolver()
+                              : new ParallelCircuitSolver(parallelism);
+  }
+
+  @TearDown(Level.Trial)
+  public void stopSolver() {
+    solver.stop();
+  }
+
+  @Benchmark
+  public void individual(CircuitWorkload workload, Blackhole bh) throws InterruptedException {
+    Circuit[] circuits = workload.all();
+    CircuitValue[] values = new CircuitValue[circuits.length];
+    for (int i = 0; i < circuits.length; ++i) {
+      values[i] = solver.solve(circuits[i]);
+    }
+    for (CircuitValue value : values) {
+      bh.consume(value.getValue());
+    }
+  }
+
+  @Benchmark
+  public void batch(CircuitWorkload workload, Blackhole bh) throws InterruptedException {
+    BatchCircuitValue batch = solver.solveAll(workload.all());
+    batch.awaitAll();
+    for (int i = 0; i < batch.size(); ++i) {
+      bh.consume(batch.get(i).getValue());
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import circuit.Circuit;
+import demo.SequentialSolver;
+import solver.compiled.BitSlicedEvaluator;
+import solver.compiled.CompiledCircuit;
+
+/**
+ * Evaluates the workload circuits over many leaf assignments. One operation is one assignment:
+ * a {@link SequentialSolver} solve, or 1/65536 of a bit-sliced pass over 1024 words.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BitSlicedBenchmark {
+  private static final int WORDS = 1024;
+
+  private final SequentialSolver sequential = new SequentialSolver();
+  private BitSlicedEvaluator[] evaluators;
+  private long[][][] leafWords;
+  private int next = 0;
+
+  @Setup(Level.Trial)
+  public void compile(CircuitWorkload workload) throws InterruptedException {
+    Random rand = new Random(workload.seed);
+    Circuit[] circuits = workload.all();
+    evaluators = new BitSlicedEvaluator[circuits.length];
+    leafWords = new long[circuits.length][][];
+    for (int i = 0; i < circuits.length; ++i) {
+      CompiledCircuit compiled = CompiledCircuit.compile(circuits[i]);
+      evaluators[i] = new BitSlicedEvaluator(compiled);
+      leafWords[i] = new long[compiled.getLeafCount()][WORDS];
+      for (long[] words : leafWords[i]) {
+        for (int w = 0; w < WORDS; ++w) {
+          words[w] = rand.nextLong();
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public boolean sequential(CircuitWorkload workload) throws InterruptedException {
+    return sequential.solve(workload.next()).getValue();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(64 * WORDS)
+  public long[] bitSliced() {
+    int i = next;
+    next = (next + 1) % evaluators.length;
+    return evaluators[i].evaluate(leafWords[i]);
+  }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.CircuitSolver;
+import circuit.NodeType;
+import solver.ParallelCircuitSolver;
+import solver.VirtualThreadCircuitSolver;
+
+/**
+ * Solves one circuit whose leaves all block at the same time:
+ * an AND over {@code leaves} leaves, each sleeping {@code leafDelayMillis}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class BlockingLeavesBenchmark {
+  public enum Engine {
+    FORK_JOIN, VIRTUAL_THREADS
+  }
+
+  @Param({"FORK_JOIN", "VIRTUAL_THREADS"})
+  public Engine engine;
+
+  @Param({"1000", "10000", "100000"})
+  public int leaves;
+
+  @Param({"10"})
+  public int leafDelayMillis;
+
+  private CircuitSolver solver;
+  private Circuit circuit;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    int parallelism = Runtime.getRuntime().availableProcessors();
+    solver = switch (engine) {
+      case FORK_JOIN -> new ParallelCircuitSolver(parallelism);
+      case VIRTUAL_THREADS -> new VirtualThreadCircuitSolver(parallelism);
+    };
+
+    CircuitNode[] args = new CircuitNode[leaves];
+    for (int i = 0; i < args.length; ++i) {
+      args[i] = CircuitNode.mk(true, Duration.ofMillis(leafDelayMillis));
+    }
+    circuit = new Circuit(CircuitNode.mk(NodeType.AND, args));
+  }
+
+  @TearDown(Level.Trial)
+  public void stopSolver() {
+    solver.stop();
+  }
+
+  @Benchmark
+  public boolean solve() throws InterruptedException {
+    return solver.solve(circuit).getValue();
+  }
+}
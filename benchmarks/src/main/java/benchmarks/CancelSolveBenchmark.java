@@ -0,0 +1,83 @@
+package benchmarks;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import circuit.AsyncCircuitValue;
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.NodeType;
+import solver.ParallelCircuitSolver;
+
+/**
+ * Solves the workload on one thread while another thread either idles or keeps submitting
+ * circuits of slow leaves, which occupy workers, and cancels each of them after 1 ms.
+ * The throughput of {@code solve} should be the same with and without the cancelled solves.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CancelSolveBenchmark {
+  @Param({"false", "true"})
+  public boolean cancelling;
+
+  @Param({"4"})
+  public int parallelism;
+
+  private ParallelCircuitSolver solver;
+  private Circuit slow;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    solver = new ParallelCircuitSolver(parallelism);
+    CircuitNode[] leaves = new CircuitNode[parallelism];
+    for (int i = 0; i < leaves.length; ++i) {
+      leaves[i] = CircuitNode.mk(true, Duration.ofSeconds(1));
+    }
+    slow = new Circuit(CircuitNode.mk(NodeType.AND, leaves));
+  }
+
+  @TearDown(Level.Trial)
+  public void stopSolver() {
+    solver.stop();
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public boolean solve(CircuitWorkload workload) throws InterruptedException {
+    return solver.solve(workload.next()).getValue();
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public boolean background() throws InterruptedException {
+    if (!cancelling) {
+      Thread.sleep(1);
+      return false;
+    }
+    AsyncCircuitValue value = solver.solve(slow);
+    Thread.sleep(1);
+    return value.cancel();
+  }
+}
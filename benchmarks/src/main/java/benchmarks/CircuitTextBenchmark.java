@@ -0,0 +1,122 @@
+package benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.CircuitText;
+import circuit.NodeType;
+import tests.CircuitGenerator.BalancedRandomCircuitGenerator;
+
+/**
+ * Reads and writes one large circuit in the text format, the AND of seeded balanced random
+ * circuits. The {@code bytes} counter is the throughput in characters per second,
+ * one character being one byte.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CircuitTextBenchmark {
+  /** Number of random circuits of height 12 under the root, 256 give about 8 MB of text. */
+  @Param({"256"})
+  public int circuits;
+
+  private Circuit circuit;
+  private char[] chars;
+  private byte[] bytes;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Throughput {
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+    }
+  }
+
+  /** Discards what is written, like {@code Writer.nullWriter()} does for characters. */
+  private static final WritableByteChannel DISCARD = new WritableByteChannel() {
+    @Override
+    public int write(ByteBuffer src) {
+      int n = src.remaining();
+      src.position(src.limit());
+      return n;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {}
+  };
+
+  @Setup(Level.Trial)
+  public void generate() throws IOException, InterruptedException {
+    BalancedRandomCircuitGenerator generator = new BalancedRandomCircuitGenerator(12, new Random(42), 4);
+    CircuitNode[] args = new CircuitNode[circuits];
+    for (int i = 0; i < args.length; ++i) {
+      args[i] = generator.generateCircuit().getCircuit().getRoot();
+    }
+    StringWriter out = new StringWriter();
+    CircuitText.write(new Circuit(CircuitNode.mk(NodeType.AND, args)), out);
+    chars = out.toString().toCharArray();
+    bytes = out.toString().getBytes(StandardCharsets.US_ASCII);
+    // the leaves of a circuit read back are written without evaluating them
+    circuit = CircuitText.read(new CharArrayReader(chars));
+  }
+
+  @Benchmark
+  public Circuit readReader(Throughput throughput) throws IOException {
+    throughput.bytes += chars.length;
+    return CircuitText.read(new CharArrayReader(chars));
+  }
+
+  @Benchmark
+  public Circuit readChannel(Throughput throughput) throws IOException {
+    throughput.bytes += bytes.length;
+    return CircuitText.read(Channels.newChannel(new ByteArrayInputStream(bytes)));
+  }
+
+  @Benchmark
+  public void writeWriter(Throughput throughput) throws IOException, InterruptedException {
+    throughput.bytes += chars.length;
+    CircuitText.write(circuit, Writer.nullWriter());
+  }
+
+  @Benchmark
+  public void writeChannel(Throughput throughput) throws IOException, InterruptedException {
+    throughput.bytes += bytes.length;
+    CircuitText.write(circuit, DISCARD);
+  }
+}
@@ -0,0 +1,77 @@
+package benchmarks;
+
+import java.time.Duration;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import circuit.Circuit;
+import circuit.NodeType;
+import tests.CircuitGenerator.BalancedRandomCircuitGenerator;
+import tests.CircuitGenerator.DeepRandomCircuitGenerator;
+import tests.CircuitGenerator.DeterministicNodeGenerator;
+import tests.CircuitGenerator.RandomCircuitGenerator;
+
+/**
+ * A seeded, pre-generated set of circuits of a single shape.
+ * 
+ * <p>The circuits are generated once per trial so that generation cost
+ * is not part of the measurement, and the same seed always produces
+ * the same circuits across solvers and runs.
+ */
+@State(Scope.Benchmark)
+public class CircuitWorkload {
+  public enum Shape {
+    DEEP, BALANCED, DETERMINISTIC_AND
+  }
+
+  @Param({"DEEP", "BALANCED", "DETERMINISTIC_AND"})
+  public Shape shape;
+
+  @Param({"0", "1"})
+  public int leafDelayMillis;
+
+  @Param({"42"})
+  public long seed;
+
+  @Param({"64"})
+  public int circuitCount;
+
+  private Circuit[] circuits;
+  private int next = 0;
+
+  @Setup(Level.Trial)
+  public void generate() {
+    RandomCircuitGenerator generator = generator(new Random(seed));
+    generator.setLeafDelay(Duration.ofMillis(leafDelayMillis));
+
+    circuits = new Circuit[circuitCount];
+    for (int i = 0; i < circuits.length; ++i) {
+      circuits[i] = generator.generateCircuit().getCircuit();
+    }
+  }
+
+  private RandomCircuitGenerator generator(Random rand) {
+    return switch (shape) {
+      case DEEP -> new DeepRandomCircuitGenerator(1_000, rand);
+      case BALANCED -> new BalancedRandomCircuitGenerator(6, rand);
+      case DETERMINISTIC_AND -> new DeterministicNodeGenerator(rand, 8, NodeType.AND, true);
+    };
+  }
+
+  /** @return all circuits of the workload */
+  public Circuit[] all() {
+    return circuits;
+  }
+
+  /** @return the next circuit of the workload, cycling through all of them */
+  public Circuit next() {
+    Circuit c = circuits[next];
+    next = (next + 1) % circuits.length;
+    return c;
+  }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import circuit.Circuit;
+import solver.GranularityPolicy;
+import solver.ParallelCircuitSolver;
+import solver.SolverOptions;
+import solver.compiled.CompiledCircuit;
+import solver.compiled.CompiledCircuitSolver;
+
+/**
+ * Solves one circuit of the workload per operation, compiled once per trial
+ * for {@link CompiledCircuitSolver}. Run with {@code -prof gc} to compare
+ * the allocation per solve.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CompiledSolverBenchmark {
+  public enum Engine {
+    POINTER_GRAPH, COMPILED
+  }
+
+  @Param({"POINTER_GRAPH", "COMPILED"})
+  public Engine engine;
+
+  @Param({"0"})
+  public int parallelism;
+
+  /** Largest subcircuit the pointer graph solver evaluates inline, 0 forks a task for every node. */
+  @Param({"0", "64"})
+  public int maxInlineNodes;
+
+  private ParallelCircuitSolver parallelSolver;
+  private CompiledCircuitSolver compiledSolver;
+  private CompiledCircuit[] compiled;
+  private int next = 0;
+
+  @Setup(Level.Trial)
+  public void startSolver(CircuitWorkload workload) throws InterruptedException {
+    int threads = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+    if (engine == Engine.COMPILED) {
+      compiledSolver = new CompiledCircuitSolver(threads);
+      Circuit[] circuits = workload.all();
+      compiled = new CompiledCircuit[circuits.length];
+      for (int i = 0; i < circuits.length; ++i) {
+        compiled[i] = CompiledCircuit.compile(circuits[i]);
+      }
+    } else {
+      GranularityPolicy granularity = maxInlineNodes == 0
+          ? GranularityPolicy.ALWAYS_FORK
+          : new GranularityPolicy(maxInlineNodes, GranularityPolicy.DEFAULT.getMaxInlineDepth());
+      parallelSolver = new ParallelCircuitSolver(threads, new SolverOptions().withGranularity(granularity));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stopSolver() {
+    if (compiledSolver != null) compiledSolver.stop();
+    if (parallelSolver != null) parallelSolver.stop();
+  }
+
+  @Benchmark
+  public boolean solve(CircuitWorkload workload) throws InterruptedException {
+    if (engine == Engine.POINTER_GRAPH) {
+      return parallelSolver.solve(workload.next()).getValue();
+    }
+    CompiledCircuit c = compiled[next];
+    next = (next + 1) % compiled.length;
+    return compiledSolver.solve(c).getValue();
+  }
+}
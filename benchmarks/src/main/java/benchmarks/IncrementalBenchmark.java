@@ -0,0 +1,101 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.NodeType;
+import solver.compiled.CompiledCircuit;
+import solver.compiled.IncrementalEvaluator;
+import tests.CircuitGenerator.BalancedRandomCircuitGenerator;
+
+/**
+ * Changes {@code delta} random leaves of one large compiled circuit per operation, and either
+ * updates the values kept by an {@link IncrementalEvaluator} or evaluates the whole circuit
+ * again for the new leaf values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IncrementalBenchmark {
+  // random leaf sets cycled through
+  private static final int DELTAS = 256;
+
+  @Param({"1", "10", "1000"})
+  public int delta;
+
+  /** Number of random circuits of height 10 under the root. */
+  @Param({"64"})
+  public int circuits;
+
+  private IncrementalEvaluator evaluator;
+  private boolean[] leafValues;
+  private int[][] leaves;
+  private boolean[][] values;
+  private int next = 0;
+
+  @Setup(Level.Trial)
+  public void compile() throws InterruptedException {
+    Random rand = new Random(24);
+    CircuitNode[] roots = new CircuitNode[circuits];
+    for (int i = 0; i < circuits; ++i) {
+      roots[i] = new BalancedRandomCircuitGenerator(10, rand).generateCircuit().getCircuit().getRoot();
+    }
+    CompiledCircuit compiled = CompiledCircuit.compile(new Circuit(CircuitNode.mk(NodeType.AND, roots)));
+
+    evaluator = new IncrementalEvaluator(compiled);
+    leafValues = new boolean[compiled.getLeafCount()];
+    for (int leaf = 0; leaf < leafValues.length; ++leaf) {
+      leafValues[leaf] = rand.nextBoolean();
+    }
+    evaluator.evaluate(leafValues);
+
+    leaves = new int[DELTAS][delta];
+    values = new boolean[DELTAS][delta];
+    for (int d = 0; d < DELTAS; ++d) {
+      for (int i = 0; i < delta; ++i) {
+        leaves[d][i] = rand.nextInt(leafValues.length);
+        values[d][i] = rand.nextBoolean();
+      }
+    }
+  }
+
+  private int nextDelta() {
+    int d = next;
+    next = (next + 1) % DELTAS;
+    int[] changed = leaves[d];
+    for (int i = 0; i < changed.length; ++i) {
+      leafValues[changed[i]] = values[d][i];
+    }
+    return d;
+  }
+
+  @Benchmark
+  public boolean incremental() {
+    int d = nextDelta();
+    return evaluator.setLeafValues(leaves[d], values[d]);
+  }
+
+  @Benchmark
+  public boolean full() {
+    nextDelta();
+    return evaluator.evaluate(leafValues);
+  }
+}
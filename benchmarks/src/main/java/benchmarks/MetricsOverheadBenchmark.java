@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import solver.ParallelCircuitSolver;
+import solver.SolverOptions;
+
+/**
+ * Solves the workload with and without per-solve metrics. Without metrics the
+ * instrumentation is a null check per counted event, which should not be measurable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MetricsOverheadBenchmark {
+  @Param({"false", "true"})
+  public boolean metrics;
+
+  @Param({"0"})
+  public int parallelism;
+
+  private ParallelCircuitSolver solver;
+
+  @Setup(Level.Trial)
+  public void startSolver() {
+    SolverOptions options = new SolverOptions().withMetrics(metrics);
+    solver = new ParallelCircuitSolver(parallelism == 0 ? Runtime.getRuntime().availableProcessors()
+                                                        : parallelism, options);
+  }
+
+  @TearDown(Level.Trial)
+  public void stopSolver() {
+    solver.stop();
+  }
+
+  @Benchmark
+  public boolean solve(CircuitWorkload workload) throws InterruptedException {
+    return solver.solve(workload.next()).getValue();
+  }
+}
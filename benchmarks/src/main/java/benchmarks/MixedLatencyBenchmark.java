@@ -0,0 +1,94 @@
+package benchmarks;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.NodeType;
+import solver.LeafLatencyModel;
+import solver.ParallelCircuitSolver;
+import solver.SolverOptions;
+
+/**
+ * Solves OR-of-AND circuits whose leaves take 1 or 20 ms, with fewer workers than
+ * concurrently blocking leaves. Every OR has one AND of fast true leaves, at a random
+ * position, which determines it. Reports the latency distribution with and without
+ * the learned latency model ordering the forks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MixedLatencyBenchmark {
+  private static final int FAST_MILLIS = 1;
+  private static final int SLOW_MILLIS = 20;
+
+  @Param({"false", "true"})
+  public boolean latencyModel;
+
+  @Param({"2"})
+  public int parallelism;
+
+  @Param({"8"})
+  public int width;
+
+  private ParallelCircuitSolver solver;
+  private Circuit[] circuits;
+  private int next = 0;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    SolverOptions options = new SolverOptions();
+    if (latencyModel) {
+      options = options.withLatencyModel(new LeafLatencyModel());
+    }
+    solver = new ParallelCircuitSolver(parallelism, options);
+
+    Random rand = new Random(42);
+    circuits = new Circuit[16];
+    for (int i = 0; i < circuits.length; ++i) {
+      CircuitNode[] ands = new CircuitNode[width];
+      int deciding = rand.nextInt(width);
+      for (int j = 0; j < width; ++j) {
+        ands[j] = j == deciding
+            ? CircuitNode.mk(NodeType.AND, leaf(true, FAST_MILLIS), leaf(true, FAST_MILLIS))
+            : CircuitNode.mk(NodeType.AND, leaf(true, SLOW_MILLIS), leaf(false, SLOW_MILLIS));
+      }
+      circuits[i] = new Circuit(CircuitNode.mk(NodeType.OR, ands));
+    }
+  }
+
+  private static CircuitNode leaf(boolean value, int millis) {
+    return CircuitNode.mk(value, Duration.ofMillis(millis));
+  }
+
+  @TearDown(Level.Trial)
+  public void stopSolver() {
+    solver.stop();
+  }
+
+  @Benchmark
+  public boolean solve() throws InterruptedException {
+    Circuit c = circuits[next];
+    next = (next + 1) % circuits.length;
+    return solver.solve(c).getValue();
+  }
+}
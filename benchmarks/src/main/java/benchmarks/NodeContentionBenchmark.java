@@ -0,0 +1,99 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import circuit.CircuitNode;
+import circuit.NodeType;
+import solver.paralell.nodes.ParallelNode;
+
+/**
+ * Registers all children of a single wide node from {@code threads} threads at once,
+ * which is what finishing children do to their parent during a solve.
+ * All children are true and the node is determined only by the last one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeContentionBenchmark {
+  @Param({"AND", "GT"})
+  public NodeType type;
+
+  @Param({"10000", "100000", "1000000"})
+  public int children;
+
+  @Param({"1", "4", "16"})
+  public int threads;
+
+  private CircuitNode node;
+  private ExecutorService executor;
+
+  @Setup(Level.Trial)
+  public void setup() throws InterruptedException {
+    CircuitNode[] args = new CircuitNode[children];
+    CircuitNode leaf = CircuitNode.mk(true);
+    for (int i = 0; i < args.length; ++i) {
+      args[i] = leaf;
+    }
+    node = type == NodeType.GT ? CircuitNode.mk(type, children - 1, args)
+                               : CircuitNode.mk(type, args);
+    executor = Executors.newFixedThreadPool(threads);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  public int registerAll() throws Exception {
+    ParallelNode parallelNode = ParallelNode.mk(node, null);
+    parallelNode.getChildren();
+
+    List<Callable<Integer>> registrations = new ArrayList<>(threads);
+    for (int t = 0; t < threads; ++t) {
+      int from = (int) ((long) children * t / threads);
+      int to = (int) ((long) children * (t + 1) / threads);
+      registrations.add(() -> {
+        int determined = 0;
+        for (int i = from; i < to; ++i) {
+          if (parallelNode.registerChild(true, i) != null) {
+            ++determined;
+          }
+        }
+        return determined;
+      });
+    }
+
+    int determined = 0;
+    for (Future<Integer> f : executor.invokeAll(registrations)) {
+      determined += f.get();
+    }
+    if (determined != 1) {
+      throw new IllegalStateException("Node determined " + determined + " times");
+    }
+    return determined;
+  }
+}
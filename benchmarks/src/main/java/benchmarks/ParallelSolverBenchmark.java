@@ -0,0 +1,60 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import circuit.CircuitSolver;
+import solver.GranularityPolicy;
+import solver.ParallelCircuitSolver;
+import solver.SolverOptions;
+
+/** Solves one circuit of the workload per operation with {@link ParallelCircuitSolver}. */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ParallelSolverBenchmark {
+  /** Parallelism of the solver's pool, 0 stands for the ForkJoinPool default. */
+  @Param({"1", "4", "0"})
+  public int parallelism;
+
+  /** Largest subcircuit evaluated inline, 0 forks a task for every node. */
+  @Param({"0", "64"})
+  public int maxInlineNodes;
+
+  private CircuitSolver solver;
+
+  @Setup(Level.Trial)
+  public void startSolver() {
+    int threads = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+    GranularityPolicy granularity = maxInlineNodes == 0
+        ? GranularityPolicy.ALWAYS_FORK
+        : new GranularityPolicy(maxInlineNodes, GranularityPolicy.DEFAULT.getMaxInlineDepth());
+    solver = new ParallelCircuitSolver(threads, new SolverOptions().withGranularity(granularity));
+  }
+
+  @TearDown(Level.Trial)
+  public void stopSolver() {
+    solver.stop();
+  }
+
+  @Benchmark
+  public boolean solve(CircuitWorkload workload) throws InterruptedException {
+    return solver.solve(workload.next()).getValue();
+  }
+}
@@ -0,0 +1,39 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import circuit.CircuitSolver;
+import demo.SequentialSolver;
+
+/** Baseline for {@link ParallelSolverBenchmark}: the same workloads solved by {@link SequentialSolver}. */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SequentialSolverBenchmark {
+  private CircuitSolver solver;
+
+  @Setup(Level.Trial)
+  public void startSolver() {
+    solver = new SequentialSolver();
+  }
+
+  @Benchmark
+  public boolean solve(CircuitWorkload workload) throws InterruptedException {
+    return solver.solve(workload.next()).getValue();
+  }
+}
@@ -0,0 +1,39 @@
+package circuit;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link CircuitValue} that can also be waited for with a timeout or
+ * consumed asynchronously, without parking a thread per value.
+ */
+public interface AsyncCircuitValue extends CircuitValue {
+    /**
+     * @throws InterruptedException if the computation was stopped or the waiting thread interrupted
+     * @throws TimeoutException     if the value is not known within {@code timeout}
+     */
+    public boolean getValue(Duration timeout) throws InterruptedException, TimeoutException;
+
+    /**
+     * @return a stage completed with the value, or exceptionally with a
+     *         {@code CancellationException} if the computation is stopped
+     */
+    public CompletionStage<Boolean> toCompletionStage();
+
+    /**
+     * Registers a listener called once with either the value or the exception
+     * that stopped the computation. The listener runs on the thread completing
+     * the value, or immediately if the value is already known, so it should be short.
+     */
+    public void onComplete(BiConsumer<Boolean, Throwable> listener);
+
+    /**
+     * Gives up the computation of this value alone, freeing the resources it holds.
+     * The value completes exceptionally with a {@code CancellationException}.
+     *
+     * @return whether this call completed the value, false if it was already known or stopped
+     */
+    public boolean cancel();
+}
@@ -0,0 +1,332 @@
+package circuit;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Reads and writes circuits in the text format of {@code RandomCircuitGenerator.printCircuit}:
+ * {@code AND(T, OR(F, GT2(T, F, T)))}. Leaves are {@code T} and {@code F}, GT and LT are
+ * followed by their threshold, whitespace between tokens is ignored.
+ *
+ * <p>Both directions stream through a fixed buffer and keep the nodes of the current path on
+ * an explicit stack, so neither the size nor the depth of a circuit is bounded by anything
+ * but the heap. The format has no sharing: a node reachable from several parents is written
+ * once per parent, and read back as distinct nodes.
+ */
+public final class CircuitText {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // parsed leaves are constants, all of them share two nodes
+    private static final CircuitNode TRUE = CircuitNode.mk(true);
+    private static final CircuitNode FALSE = CircuitNode.mk(false);
+
+    private CircuitText() {}
+
+    /**
+     * @throws IOException if reading fails or the text is not a single well-formed circuit
+     */
+    public static Circuit read(Reader in) throws IOException {
+        return new Circuit(new Parser(in, null).parse());
+    }
+
+    /**
+     * Reads an ASCII encoded circuit.
+     *
+     * @throws IOException if reading fails or the text is not a single well-formed circuit
+     */
+    public static Circuit read(ReadableByteChannel in) throws IOException {
+        return new Circuit(new Parser(null, in).parse());
+    }
+
+    /**
+     * Writes {@code c}, with the values of its leaves. Evaluating a leaf may block.
+     */
+    public static void write(Circuit c, Writer out) throws IOException, InterruptedException {
+        new Output(out, null).write(c.getRoot());
+    }
+
+    /**
+     * Writes {@code c} ASCII encoded, with the values of its leaves. Evaluating a leaf may block.
+     */
+    public static void write(Circuit c, WritableByteChannel out) throws IOException, InterruptedException {
+        new Output(null, out).write(c.getRoot());
+    }
+
+    private static final class Parser {
+        // exactly one of reader and channel is set
+        private final Reader reader;
+        private final ReadableByteChannel channel;
+        private final ByteBuffer bytes;
+        private final char[] chars = new char[BUFFER_SIZE];
+        private int pos = 0;
+        private int limit = 0;
+        // characters before the buffer, for error messages
+        private long consumed = 0;
+
+        // inner nodes whose arguments are being read
+        private NodeType[] types = new NodeType[16];
+        private int[] thresholds = new int[16];
+        private int[] firstArg = new int[16];
+        private int depth = 0;
+        // arguments read so far, of all nodes on the stack
+        private CircuitNode[] args = new CircuitNode[16];
+        private int argCount = 0;
+
+        Parser(Reader reader, ReadableByteChannel channel) {
+            this.reader = reader;
+            this.channel = channel;
+            this.bytes = channel == null ? null : ByteBuffer.allocate(BUFFER_SIZE);
+        }
+
+        CircuitNode parse() throws IOException {
+            // whether the next token is a node, otherwise a separator or the end
+            boolean expectNode = true;
+            while (true) {
+                int c = nextToken();
+                if (expectNode) {
+                    switch (c) {
+                        case 'T' -> pushArg(TRUE);
+                        case 'F' -> pushArg(FALSE);
+                        case 'A', 'O', 'N', 'I', 'G', 'L' -> {
+                            openNode(keyword(c));
+                            continue;
+                        }
+                        default -> throw error("a node", c);
+                    }
+                    expectNode = false;
+                    continue;
+                }
+
+                if (c == ',' && depth > 0) {
+                    expectNode = true;
+                } else if (c == ')' && depth > 0) {
+                    closeNode();
+                } else if (c == -1 && depth == 0) {
+                    return args[0];
+                } else {
+                    throw error(depth > 0 ? "',' or ')'" : "the end of the circuit", c);
+                }
+            }
+        }
+
+        /** Reads the rest of a keyword starting with {@code first}, and the threshold of GT and LT. */
+        private NodeType keyword(int first) throws IOException {
+            if (depth == types.length) {
+                types = Arrays.copyOf(types, depth * 2);
+                thresholds = Arrays.copyOf(thresholds, depth * 2);
+                firstArg = Arrays.copyOf(firstArg, depth * 2);
+            }
+            NodeType type = switch (first) {
+                case 'A' -> expect("ND", NodeType.AND);
+                case 'O' -> expect("R", NodeType.OR);
+                case 'N' -> expect("OT", NodeType.NOT);
+                case 'I' -> expect("F", NodeType.IF);
+                case 'G' -> expect("T", NodeType.GT);
+                default -> expect("T", NodeType.LT);
+            };
+            if (type == NodeType.GT || type == NodeType.LT) {
+                long threshold = 0;
+                int digits = 0;
+                int c;
+                while ((c = peek()) >= '0' && c <= '9') {
+                    ++pos;
+                    threshold = threshold * 10 + c - '0';
+                    if (threshold > Integer.MAX_VALUE) throw error("a threshold below 2^31", c);
+                    ++digits;
+                }
+                if (digits == 0) throw error("a threshold", read());
+                thresholds[depth] = (int) threshold;
+            }
+            int c = nextToken();
+            if (c != '(') throw error("'('", c);
+            return type;
+        }
+
+        private NodeType expect(String rest, NodeType type) throws IOException {
+            for (int i = 0; i < rest.length(); ++i) {
+                int c = read();
+                if (c != rest.charAt(i)) throw error("'" + rest.charAt(i) + "' of " + type, c);
+            }
+            return type;
+        }
+
+        private void openNode(NodeType type) {
+            types[depth] = type;
+            firstArg[depth] = argCount;
+            ++depth;
+        }
+
+        private void closeNode() throws IOException {
+            --depth;
+            CircuitNode[] nodeArgs = Arrays.copyOfRange(args, firstArg[depth], argCount);
+            // the arguments are not kept reachable from the stack
+            Arrays.fill(args, firstArg[depth], argCount, null);
+            argCount = firstArg[depth];
+
+            NodeType type = types[depth];
+            try {
+                pushArg(type == NodeType.GT || type == NodeType.LT
+                        ? CircuitNode.mk(type, thresholds[depth], nodeArgs)
+                        : CircuitNode.mk(type, nodeArgs));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage() + " At offset " + offset() + ".", e);
+            }
+        }
+
+        private void pushArg(CircuitNode node) {
+            if (argCount == args.length) {
+                args = Arrays.copyOf(args, argCount * 2);
+            }
+            args[argCount++] = node;
+        }
+
+        /** @return the next character that is not whitespace, -1 at the end */
+        private int nextToken() throws IOException {
+            int c;
+            do {
+                c = read();
+            } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+            return c;
+        }
+
+        private int read() throws IOException {
+            int c = peek();
+            if (c != -1) ++pos;
+            return c;
+        }
+
+        private int peek() throws IOException {
+            if (pos == limit && !fill()) return -1;
+            return chars[pos];
+        }
+
+        private boolean fill() throws IOException {
+            consumed += limit;
+            pos = 0;
+            limit = 0;
+            if (reader != null) {
+                int n;
+                while ((n = reader.read(chars)) == 0) {}
+                if (n < 0) return false;
+                limit = n;
+                return true;
+            }
+
+            bytes.clear();
+            int n;
+            while ((n = channel.read(bytes)) == 0) {}
+            if (n < 0) return false;
+            byte[] array = bytes.array();
+            for (int i = 0; i < n; ++i) {
+                // bytes beyond ASCII become characters no token starts with
+                chars[i] = (char) (array[i] & 0xff);
+            }
+            limit = n;
+            return true;
+        }
+
+        private long offset() {
+            return consumed + pos;
+        }
+
+        private IOException error(String expected, int found) {
+            String what = found == -1 ? "the end of the input" : "'" + (char) found + "'";
+            return new IOException("Expected " + expected + " but found " + what
+                                   + " at offset " + (offset() - (found == -1 ? 0 : 1)) + ".");
+        }
+    }
+
+    private static final class Output {
+        // exactly one of writer and channel is set
+        private final Writer writer;
+        private final WritableByteChannel channel;
+        private final ByteBuffer bytes;
+        private final char[] chars = new char[BUFFER_SIZE];
+        private int size = 0;
+
+        Output(Writer writer, WritableByteChannel channel) {
+            this.writer = writer;
+            this.channel = channel;
+            this.bytes = channel == null ? null : ByteBuffer.allocate(BUFFER_SIZE);
+        }
+
+        void write(CircuitNode root) throws IOException, InterruptedException {
+            // inner nodes whose arguments are being written, with the index of the next one
+            CircuitNode[][] path = new CircuitNode[16][];
+            int[] next = new int[16];
+            int depth = 0;
+
+            CircuitNode node = root;
+            while (true) {
+                if (node == TRUE || node == FALSE) {
+                    // a leaf read by this class, its value is known without evaluating it
+                    put(node == TRUE ? 'T' : 'F');
+                } else if (node.getType() == NodeType.LEAF) {
+                    put(((LeafNode) node).getValue() ? 'T' : 'F');
+                } else {
+                    put(node.getType().name());
+                    if (node instanceof ThresholdNode threshold) {
+                        put(Integer.toString(threshold.getThreshold()));
+                    }
+                    put('(');
+                    if (depth == path.length) {
+                        path = Arrays.copyOf(path, depth * 2);
+                        next = Arrays.copyOf(next, depth * 2);
+                    }
+                    path[depth] = node.getArgs();
+                    next[depth] = 0;
+                    ++depth;
+                }
+
+                // the next argument of the deepest node not written completely
+                node = null;
+                while (node == null && depth > 0) {
+                    CircuitNode[] nodeArgs = path[depth - 1];
+                    int i = next[depth - 1]++;
+                    if (i < nodeArgs.length) {
+                        if (i > 0) put(", ");
+                        node = nodeArgs[i];
+                    } else {
+                        put(')');
+                        path[--depth] = null;
+                    }
+                }
+                if (node == null) break;
+            }
+            flush();
+            if (writer != null) writer.flush();
+        }
+
+        private void put(char c) throws IOException {
+            if (size == chars.length) flush();
+            chars[size++] = c;
+        }
+
+        private void put(String s) throws IOException {
+            for (int i = 0; i < s.length(); ++i) {
+                put(s.charAt(i));
+            }
+        }
+
+        private void flush() throws IOException {
+            if (writer != null) {
+                writer.write(chars, 0, size);
+            } else {
+                bytes.clear();
+                for (int i = 0; i < size; ++i) {
+                    bytes.put((byte) chars[i]);
+                }
+                bytes.flip();
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+            size = 0;
+        }
+    }
+}
@@ -6,4 +6,34 @@ public abstract non-sealed class LeafNode extends CircuitNode {
     }
 
     abstract public boolean getValue() throws InterruptedException;
+
+    /**
+     * Solvers may evaluate leaves that do not block inline, without scheduling a separate task.
+     *
+     * @return {@code false} if {@code getValue()} is known to return immediately
+     */
+    public boolean mayBlock() {
+        return true;
+    }
+
+    /**
+     * Key under which a solver may cache the value of this leaf across solves.
+     * Leaves with equal keys are assumed to have equal values.
+     *
+     * @return the key, by default the leaf itself; {@code null} if the value must not be cached
+     */
+    public Object getCacheKey() {
+        return this;
+    }
+
+    /**
+     * Key under which a solver may keep latency statistics of {@code getValue()}.
+     * Leaves with equal keys are expected to take about as long, keys should come
+     * from a small set.
+     *
+     * @return the key, by default the class of the leaf
+     */
+    public Object getLatencyKey() {
+        return getClass();
+    }
 }
@@ -0,0 +1,339 @@
+package circuit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A circuit stored in a compact binary file and read through memory mappings. Opening it
+ * maps the file and reads a header, nodes are created only when a solver asks for them:
+ * {@code getArgs()} of a node creates its arguments from the mapping every time it is
+ * called, and nothing keeps them reachable but the caller. Startup time does not depend on
+ * the size of the circuit, and the heap holds only the nodes a solve is working on.
+ *
+ * <p>Nodes are numbered breadth first from the root, a node reachable from several parents
+ * is stored once. The file is big-endian:
+ * <pre>
+ *   int magic, int version, int nodeCount, int edgeCount
+ *   byte[nodeCount] types            NodeType ordinals, padded to a multiple of 4 bytes
+ *   int[nodeCount] operands          threshold of GT and LT, leaf descriptor of leaves
+ *   int[nodeCount + 1] childStart    arguments of node i are children[childStart[i]..childStart[i + 1])
+ *   int[edgeCount] children
+ * </pre>
+ * A leaf descriptor holds the value in its lowest bit and the delay of the leaf in
+ * milliseconds above it, leaves are read back as {@link SleepyLeafNode}s.
+ *
+ * <p>Nodes created from the same node of the file are equal, so a solver that shares equal
+ * nodes, such as {@code ParallelCircuitSolver}, evaluates a shared node once however often
+ * it was created.
+ */
+public final class MappedCircuit extends Circuit {
+    private static final int MAGIC = 0x43495243; // "CIRC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_DELAY_MILLIS = Integer.MAX_VALUE >>> 1;
+    private static final NodeType[] TYPES = NodeType.values();
+
+    private final Mapping mapping;
+
+    private MappedCircuit(Mapping mapping) {
+        super(mapping.node(0));
+        this.mapping = mapping;
+    }
+
+    /** @return the number of distinct nodes in the file */
+    public int getNodeCount() {
+        return mapping.nodeCount;
+    }
+
+    /**
+     * Maps {@code file}, without reading any node.
+     *
+     * @throws IOException if the file cannot be mapped or is not a circuit written by {@link #write}
+     */
+    public static MappedCircuit open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) throw corrupt(file, "it is shorter than the header");
+            IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).asIntBuffer();
+            if (header.get(0) != MAGIC) throw corrupt(file, "it does not start with the magic number");
+            if (header.get(1) != VERSION) throw corrupt(file, "its version is " + header.get(1));
+            int nodeCount = header.get(2);
+            int edgeCount = header.get(3);
+            if (nodeCount < 1 || edgeCount < 0) throw corrupt(file, "its header is invalid");
+
+            long typesAt = HEADER_BYTES;
+            long operandsAt = typesAt + padded(nodeCount);
+            long childStartAt = operandsAt + 4L * nodeCount;
+            long childrenAt = childStartAt + 4L * (nodeCount + 1);
+            long end = childrenAt + 4L * edgeCount;
+            if (size != end) throw corrupt(file, "its size is " + size + " bytes, not " + end);
+            if (4L * (nodeCount + 1) > Integer.MAX_VALUE || 4L * edgeCount > Integer.MAX_VALUE) {
+                throw new IOException("Cannot map " + file + ", its sections are larger than 2 GB.");
+            }
+
+            // the mappings stay valid after the channel is closed
+            return new MappedCircuit(new Mapping(
+                nodeCount,
+                channel.map(FileChannel.MapMode.READ_ONLY, typesAt, nodeCount),
+                channel.map(FileChannel.MapMode.READ_ONLY, operandsAt, 4L * nodeCount).asIntBuffer(),
+                channel.map(FileChannel.MapMode.READ_ONLY, childStartAt, 4L * (nodeCount + 1)).asIntBuffer(),
+                channel.map(FileChannel.MapMode.READ_ONLY, childrenAt, 4L * edgeCount).asIntBuffer()));
+        }
+    }
+
+    /**
+     * Writes {@code c} to {@code file}, replacing it. The values and delays of {@link SleepyLeafNode}s
+     * are stored as they are, other leaves are evaluated, which may block, and stored without delay.
+     *
+     * @throws IllegalArgumentException if a leaf sleeps longer than 2^30 milliseconds
+     */
+    public static void write(Circuit c, Path file) throws IOException, InterruptedException {
+        // numbers the nodes breadth first, without recursion; keyed by equality, so that
+        // equal views of one mapped node get one number
+        HashMap<CircuitNode, Integer> index = new HashMap<>();
+        List<CircuitNode> nodes = new ArrayList<>();
+        List<CircuitNode[]> args = new ArrayList<>();
+        index.put(c.getRoot(), 0);
+        nodes.add(c.getRoot());
+        int edgeCount = 0;
+        for (int i = 0; i < nodes.size(); ++i) {
+            CircuitNode[] nodeArgs = nodes.get(i).getArgs();
+            args.add(nodeArgs);
+            edgeCount = Math.addExact(edgeCount, nodeArgs.length);
+            for (CircuitNode arg : nodeArgs) {
+                if (index.putIfAbsent(arg, nodes.size()) == null) {
+                    nodes.add(arg);
+                }
+            }
+        }
+        int n = nodes.size();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(n);
+            out.putInt(edgeCount);
+            for (CircuitNode node : nodes) {
+                out.put((byte) node.getType().ordinal());
+            }
+            for (long i = n; i < padded(n); ++i) {
+                out.put((byte) 0);
+            }
+            for (CircuitNode node : nodes) {
+                out.putInt(operand(node));
+            }
+            int start = 0;
+            for (CircuitNode[] nodeArgs : args) {
+                out.putInt(start);
+                start += nodeArgs.length;
+            }
+            out.putInt(start);
+            for (CircuitNode[] nodeArgs : args) {
+                for (CircuitNode arg : nodeArgs) {
+                    out.putInt(index.get(arg));
+                }
+            }
+            out.flush();
+        }
+    }
+
+    private static int operand(CircuitNode node) throws InterruptedException {
+        if (node instanceof ThresholdNode threshold) {
+            return threshold.getThreshold();
+        }
+        if (node.getType() != NodeType.LEAF) {
+            return 0;
+        }
+        if (node.getClass() == SleepyLeafNode.class || node instanceof LeafView) {
+            SleepyLeafNode leaf = (SleepyLeafNode) node;
+            long delay = leaf.delay().toMillis();
+            if (delay > MAX_DELAY_MILLIS) {
+                throw new IllegalArgumentException("Leaves sleeping longer than " + MAX_DELAY_MILLIS
+                                                   + " ms cannot be written.");
+            }
+            return (int) delay << 1 | (leaf.value() ? 1 : 0);
+        }
+        return ((LeafNode) node).getValue() ? 1 : 0;
+    }
+
+    private static long padded(int bytes) {
+        return (bytes + 3L) & ~3L;
+    }
+
+    private static IOException corrupt(Path file, String reason) {
+        return new IOException("Not a circuit file: " + file + ", " + reason + ".");
+    }
+
+    /** The mapped sections of a file. Absolute reads of the buffers are safe from any thread. */
+    static final class Mapping {
+        private final int nodeCount;
+        private final ByteBuffer types;
+        private final IntBuffer operands;
+        private final IntBuffer childStart;
+        private final IntBuffer children;
+
+        Mapping(int nodeCount, ByteBuffer types, IntBuffer operands, IntBuffer childStart, IntBuffer children) {
+            this.nodeCount = nodeCount;
+            this.types = types;
+            this.operands = operands;
+            this.childStart = childStart;
+            this.children = children;
+        }
+
+        /** @return a new node standing for node {@code i} of the file */
+        CircuitNode node(int i) {
+            int ordinal = types.get(i);
+            if (ordinal < 0 || ordinal >= TYPES.length) {
+                throw new IllegalStateException("Node " + i + " has no valid type.");
+            }
+            NodeType type = TYPES[ordinal];
+            // the checks of the constructors of SimpleNode and ThresholdNode, which views skip
+            int arity = childStart.get(i + 1) - childStart.get(i);
+            boolean valid = switch (type) {
+                case LEAF -> arity == 0;
+                case NOT -> arity == 1;
+                case IF -> arity == 3;
+                case AND, OR -> arity >= 2;
+                case GT, LT -> arity >= 1;
+            };
+            if (!valid) {
+                throw new IllegalStateException("Node " + i + " of type " + type + " has " + arity + " arguments.");
+            }
+            if ((type == NodeType.GT || type == NodeType.LT) && operands.get(i) < 0) {
+                throw new IllegalStateException("Node " + i + " has a negative threshold.");
+            }
+            return switch (type) {
+                case LEAF -> {
+                    int descriptor = operands.get(i);
+                    yield new LeafView(this, i, (descriptor & 1) != 0, Duration.ofMillis(descriptor >>> 1));
+                }
+                case GT, LT -> new ThresholdView(this, i, type, operands.get(i));
+                default -> new SimpleView(this, i, type);
+            };
+        }
+
+        CircuitNode[] args(int i) {
+            int start = childStart.get(i);
+            CircuitNode[] args = new CircuitNode[childStart.get(i + 1) - start];
+            for (int k = 0; k < args.length; ++k) {
+                int child = children.get(start + k);
+                if (child <= 0 || child >= nodeCount) {
+                    throw new IllegalStateException("Node " + i + " has an argument out of range.");
+                }
+                args[k] = node(child);
+            }
+            return args;
+        }
+    }
+
+    static final class SimpleView extends SimpleNode {
+        private final Mapping mapping;
+        private final int index;
+
+        SimpleView(Mapping mapping, int index, NodeType type) {
+            super(type);
+            this.mapping = mapping;
+            this.index = index;
+        }
+
+        @Override
+        public CircuitNode[] getArgs() {
+            return mapping.args(index);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SimpleView v && v.mapping == mapping && v.index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+    }
+
+    static final class ThresholdView extends ThresholdNode {
+        private final Mapping mapping;
+        private final int index;
+
+        ThresholdView(Mapping mapping, int index, NodeType type, int threshold) {
+            super(type, threshold);
+            this.mapping = mapping;
+            this.index = index;
+        }
+
+        @Override
+        public CircuitNode[] getArgs() {
+            return mapping.args(index);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ThresholdView v && v.mapping == mapping && v.index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+    }
+
+    static final class LeafView extends SleepyLeafNode {
+        private final Mapping mapping;
+        private final int index;
+
+        LeafView(Mapping mapping, int index, boolean value, Duration delay) {
+            super(value, delay);
+            this.mapping = mapping;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof LeafView v && v.mapping == mapping && v.index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+    }
+
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void put(byte b) throws IOException {
+            if (!buffer.hasRemaining()) flush();
+            buffer.put(b);
+        }
+
+        void putInt(int i) throws IOException {
+            if (buffer.remaining() < 4) flush();
+            buffer.putInt(i);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
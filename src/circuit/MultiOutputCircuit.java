@@ -0,0 +1,40 @@
+package circuit;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A circuit with several outputs, which may share subcircuits and leaves.
+ * A solver supporting it evaluates a node reachable from several outputs once.
+ */
+public class MultiOutputCircuit {
+    private final CircuitNode[] outputs;
+
+    public MultiOutputCircuit(CircuitNode... outputs) {
+        if (outputs.length == 0) {
+            throw new IllegalArgumentException("A circuit must have at least one output.");
+        }
+        this.outputs = outputs.clone();
+    }
+
+    public MultiOutputCircuit(List<CircuitNode> outputs) {
+        this(outputs.toArray(new CircuitNode[0]));
+    }
+
+    public final int getOutputCount() {
+        return this.outputs.length;
+    }
+
+    public final CircuitNode getOutput(int index) {
+        return this.outputs[index];
+    }
+
+    public final List<CircuitNode> getOutputs() {
+        return List.of(this.outputs);
+    }
+
+    /** @return the circuit computing output {@code index} alone */
+    public final Circuit getCircuit(int index) {
+        return new Circuit(this.outputs[index]);
+    }
+}
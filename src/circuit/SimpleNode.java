@@ -1,7 +1,7 @@
 package circuit;
 
 /** A circuit node of type NOT, AND, OR, or IF. */
-public final class SimpleNode extends CircuitNode {
+public sealed class SimpleNode extends CircuitNode permits MappedCircuit.SimpleView {
     public SimpleNode(NodeType t, CircuitNode[] args) {
         super(t, args);
         if (t != NodeType.NOT && t != NodeType.AND && t != NodeType.OR  && t != NodeType.IF) {
@@ -17,4 +17,9 @@ public final class SimpleNode extends CircuitNode {
             throw new IllegalArgumentException("IF nodes must have exactly three arguments.");
         }
     }
+
+    /** A node whose arguments are supplied by overriding {@code getArgs()}. */
+    SimpleNode(NodeType t) {
+        super(t, null);
+    }
 }
@@ -16,9 +16,29 @@ public class SleepyLeafNode extends LeafNode {
         this.delay = delay;
     }
 
+    @Override
+    public boolean mayBlock() {
+        return !this.delay.isZero();
+    }
+
+    /** Leaves sleeping equally long share their latency statistics. */
+    @Override
+    public Object getLatencyKey() {
+        return this.delay;
+    }
+
     @Override
     public boolean getValue() throws InterruptedException {
         Thread.sleep(this.delay.toMillis());
         return this.value;
     }
+
+    /** @return the value, without sleeping */
+    boolean value() {
+        return this.value;
+    }
+
+    Duration delay() {
+        return this.delay;
+    }
 }
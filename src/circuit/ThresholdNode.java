@@ -1,6 +1,6 @@
 package circuit;
 
-public final class ThresholdNode extends CircuitNode {
+public sealed class ThresholdNode extends CircuitNode permits MappedCircuit.ThresholdView {
     public final int threshold;
 
     public ThresholdNode(NodeType t, CircuitNode[] args, int threshold) {
@@ -17,6 +17,12 @@ public final class ThresholdNode extends CircuitNode {
         this.threshold = threshold;
     }
 
+    /** A node whose arguments are supplied by overriding {@code getArgs()}. */
+    ThresholdNode(NodeType t, int threshold) {
+        super(t, null);
+        this.threshold = threshold;
+    }
+
     public final int getThreshold() {
         return this.threshold;
     }
@@ -1,7 +1,16 @@
 package demo;
 
+import java.util.Arrays;
+
 import circuit.*;
 
+/**
+ * Evaluates circuits on the calling thread. AND, OR and IF short-circuit,
+ * GT and LT evaluate all of their arguments.
+ *
+ * <p>The nodes being evaluated are kept on an explicit stack instead of the stack of
+ * the thread, so the depth of a circuit is only bounded by the heap.
+ */
 public class SequentialSolver implements CircuitSolver {
     private Boolean acceptComputations = true;
 
@@ -13,7 +22,7 @@ public class SequentialSolver implements CircuitSolver {
                 return new BrokenCircuitValue();
 
         try {
-            ret = recursiveSolve(c.getRoot());
+            ret = iterativeSolve(c.getRoot());
         } catch (InterruptedException e) {
             return new BrokenCircuitValue();
         }
@@ -25,75 +34,94 @@ public class SequentialSolver implements CircuitSolver {
         acceptComputations = false;
     }
 
-    private boolean recursiveSolve(CircuitNode n) throws InterruptedException {
-        if (n.getType() == NodeType.LEAF)
-            return ((LeafNode) n).getValue();
-
-        CircuitNode[] args = n.getArgs();
-
-        return switch (n.getType()) {
-            case IF -> solveIF(args);
-            case AND -> solveAND(args);
-            case OR -> solveOR(args);
-            case GT -> solveGT(args, ((ThresholdNode) n).getThreshold());
-            case LT -> solveLT(args, ((ThresholdNode) n).getThreshold());
-            case NOT -> solveNOT(args);
-            default -> throw new RuntimeException("Illegal type " + n.getType());
-        };
-    }
+    private boolean iterativeSolve(CircuitNode root) throws InterruptedException {
+        Frames stack = new Frames();
+        CircuitNode n = root;
 
-    private boolean solveNOT(CircuitNode[] args) throws InterruptedException {
-        return !recursiveSolve(args[0]);
-    }
+        while (true) {
+            // descend along the first arguments down to a leaf
+            while (n.getType() != NodeType.LEAF) {
+                CircuitNode[] args = n.getArgs();
+                stack.push(n, args);
+                n = args[0];
+            }
+            boolean value = ((LeafNode) n).getValue();
 
-    private boolean solveLT(CircuitNode[] args, int threshold) throws InterruptedException {
-        int gotTrue = 0;
-        for (CircuitNode arg : args) {
-            if (recursiveSolve(arg))
-                gotTrue++;
-        }
-        return gotTrue < threshold;
-    }
+            // pass the value up until a node needs another argument
+            n = null;
+            while (n == null) {
+                if (stack.isEmpty())
+                    return value;
 
-    private boolean solveGT(CircuitNode[] args, int threshold) throws InterruptedException {
-        int gotTrue = 0;
-        for (CircuitNode arg : args) {
-            if (recursiveSolve(arg))
-                gotTrue++;
+                int top = stack.size - 1;
+                CircuitNode[] args = stack.args[top];
+                int next = ++stack.next[top];
+                Boolean result = switch (stack.nodes[top].getType()) {
+                    case AND -> !value ? Boolean.FALSE : next == args.length ? Boolean.TRUE : null;
+                    case OR -> value ? Boolean.TRUE : next == args.length ? Boolean.FALSE : null;
+                    case NOT -> !value;
+                    case IF -> {
+                        if (next > 1)
+                            yield value;
+                        // the condition chooses the only branch to evaluate
+                        stack.next[top] = value ? 1 : 2;
+                        n = args[stack.next[top]];
+                        yield null;
+                    }
+                    case GT, LT -> {
+                        if (value)
+                            stack.trueCount[top]++;
+                        if (next < args.length)
+                            yield null;
+                        int threshold = ((ThresholdNode) stack.nodes[top]).getThreshold();
+                        yield stack.nodes[top].getType() == NodeType.GT ? stack.trueCount[top] > threshold
+                                                                         : stack.trueCount[top] < threshold;
+                    }
+                    default -> throw new RuntimeException("Illegal type " + stack.nodes[top].getType());
+                };
+
+                if (result != null) {
+                    stack.pop();
+                    value = result;
+                } else if (n == null) {
+                    n = args[next];
+                }
+            }
         }
-        return gotTrue > threshold;
     }
 
-    private boolean solveOR(CircuitNode[] args) throws InterruptedException {
-        for (CircuitNode c : args) {
-            if (recursiveSolve(c))
-                return true;
+    /** Stack of the inner nodes being evaluated, with the index of the argument evaluated last. */
+    private static class Frames {
+        CircuitNode[] nodes = new CircuitNode[16];
+        CircuitNode[][] args = new CircuitNode[16][];
+        int[] next = new int[16];
+        int[] trueCount = new int[16];
+        int size = 0;
+
+        boolean isEmpty() {
+            return size == 0;
         }
-        return false;
-        // boolean wasTrue = false;
-        // for (CircuitNode c : args) {
-        //         if (recursiveSolve(c))
-        //             wasTrue = true;
-        //     }
-        // return wasTrue;
-    }
 
-    private boolean solveAND(CircuitNode[] args) throws InterruptedException {
-        for (CircuitNode c : args) {
-            if (!recursiveSolve(c))
-                return false;
+        void push(CircuitNode node, CircuitNode[] nodeArgs) {
+            if (size == nodes.length) {
+                int capacity = size * 2;
+                nodes = Arrays.copyOf(nodes, capacity);
+                args = Arrays.copyOf(args, capacity);
+                next = Arrays.copyOf(next, capacity);
+                trueCount = Arrays.copyOf(trueCount, capacity);
+            }
+            nodes[size] = node;
+            args[size] = nodeArgs;
+            next[size] = 0;
+            trueCount[size] = 0;
+            ++size;
         }
-        return true;
-        // boolean wasFalse = false;
-        // for (CircuitNode c : args) {
-        //     if (!recursiveSolve(c))
-        //         wasFalse = true;
-        // }
-        // return !wasFalse;
-    }
 
-    private boolean solveIF(CircuitNode[] args) throws InterruptedException {
-        boolean b = recursiveSolve(args[0]);
-        return b ? recursiveSolve(args[1]) : recursiveSolve(args[2]);
+        void pop() {
+            --size;
+            // the evaluated subcircuit is not kept reachable from the stack
+            nodes[size] = null;
+            args[size] = null;
+        }
     }
 }
@@ -0,0 +1,102 @@
+package solver;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import circuit.AsyncCircuitValue;
+
+/**
+ * Values of a batch of circuits solved together by
+ * {@link ParallelCircuitSolver#solveAll(circuit.Circuit[])}, or of the outputs of a
+ * {@link circuit.MultiOutputCircuit}, with a single barrier for the whole batch.
+ */
+public class BatchCircuitValue {
+  private final ParallelCircuitValue[] values;
+  private final AtomicInteger remaining;
+  // completed once every value is known or stopped
+  private final CompletableFuture<Void> allDone = new CompletableFuture<>();
+
+  BatchCircuitValue(int size) {
+    values = new ParallelCircuitValue[size];
+    for (int i = 0; i < size; ++i) {
+      values[i] = new ParallelCircuitValue(this);
+    }
+    remaining = new AtomicInteger(size);
+    if (size == 0) {
+      allDone.complete(null);
+    }
+  }
+
+  /** Called once by every value of the batch when it completes. */
+  void valueCompleted() {
+    if (remaining.decrementAndGet() == 0) {
+      allDone.complete(null);
+    }
+  }
+
+  ParallelCircuitValue value(int index) {
+    return values[index];
+  }
+
+  void stop() {
+    for (ParallelCircuitValue value : values) {
+      value.stop();
+    }
+  }
+
+  public int size() {
+    return values.length;
+  }
+
+  /** @return the value of the {@code index}-th circuit of the batch */
+  public AsyncCircuitValue get(int index) {
+    return values[index];
+  }
+
+  public List<AsyncCircuitValue> getValues() {
+    return Collections.unmodifiableList(Arrays.asList(values));
+  }
+
+  public boolean isDone() {
+    return allDone.isDone();
+  }
+
+  /**
+   * Blocks until every circuit of the batch is solved or stopped.
+   */
+  public void awaitAll() throws InterruptedException {
+    try {
+      allDone.get();
+    } catch (ExecutionException | CancellationException e) {
+      throw new InterruptedException();
+    }
+  }
+
+  /**
+   * @return {@code false} if some circuit is still being solved after {@code timeout}
+   */
+  public boolean awaitAll(Duration timeout) throws InterruptedException {
+    try {
+      allDone.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+      return true;
+    } catch (TimeoutException e) {
+      return false;
+    } catch (ExecutionException | CancellationException e) {
+      throw new InterruptedException();
+    }
+  }
+
+  /** @return a stage completed once every circuit of the batch is solved or stopped */
+  public CompletionStage<Void> toCompletionStage() {
+    return allDone.minimalCompletionStage();
+  }
+}
@@ -0,0 +1,379 @@
+package solver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.LeafNode;
+import circuit.NodeType;
+import circuit.ThresholdNode;
+
+/**
+ * Rewrites a circuit into an equivalent one with fewer nodes before it is solved.
+ *
+ * <p>The rewrites run as separate passes in the order of {@link Rewrite}, each one
+ * bottom up and without recursion. Constant folding runs again after threshold normalization,
+ * which may turn nodes into constants. Subcircuits a pass does not change are kept as they are,
+ * so shared nodes stay shared and leaves keep their identity.
+ *
+ * <p>Constant folding evaluates every leaf that does not block ({@link LeafNode#mayBlock()})
+ * while optimizing, and treats its value as a constant.
+ */
+public class CircuitOptimizer {
+  public enum Rewrite {
+    /** Non-blocking leaves become constants, which are propagated into their parents. */
+    CONSTANT_FOLDING,
+    /** GT and LT nodes that are constant by their threshold, GT 0 into OR, GT n-1 into AND. */
+    THRESHOLD_NORMALIZATION,
+    /** NOT(NOT(x)) into x. */
+    DOUBLE_NEGATION,
+    /** AND/OR arguments of the same type and without other parents are merged into their parent. */
+    FLATTENING
+  }
+
+  /** The optimized circuit and the number of nodes each rewrite removed. */
+  public static class Result {
+    private final Circuit circuit;
+    private final int nodesBefore;
+    private final int nodesAfter;
+    private final Map<Rewrite, Integer> removed;
+
+    Result(Circuit circuit, int nodesBefore, int nodesAfter, Map<Rewrite, Integer> removed) {
+      this.circuit = circuit;
+      this.nodesBefore = nodesBefore;
+      this.nodesAfter = nodesAfter;
+      this.removed = removed;
+    }
+
+    public Circuit getCircuit() {
+      return circuit;
+    }
+
+    /** @return the number of distinct nodes of the original circuit */
+    public int getNodesBefore() {
+      return nodesBefore;
+    }
+
+    /** @return the number of distinct nodes of the optimized circuit */
+    public int getNodesAfter() {
+      return nodesAfter;
+    }
+
+    /** @return the number of distinct nodes removed by the pass of {@code rewrite} */
+    public int getRemoved(Rewrite rewrite) {
+      return removed.getOrDefault(rewrite, 0);
+    }
+  }
+
+  private final Set<Rewrite> rewrites;
+  private final EnumMap<Rewrite, LongAdder> totalRemoved = new EnumMap<>(Rewrite.class);
+
+  public CircuitOptimizer() {
+    this(EnumSet.allOf(Rewrite.class));
+  }
+
+  public CircuitOptimizer(Set<Rewrite> rewrites) {
+    this.rewrites = EnumSet.copyOf(rewrites);
+    for (Rewrite rewrite : Rewrite.values()) {
+      totalRemoved.put(rewrite, new LongAdder());
+    }
+  }
+
+  public Result optimize(Circuit c) throws InterruptedException {
+    CircuitNode root = c.getRoot();
+    int nodesBefore = countNodes(root);
+    int nodes = nodesBefore;
+
+    EnumMap<Rewrite, Integer> removed = new EnumMap<>(Rewrite.class);
+    for (Rewrite rewrite : rewrites) {
+      removed.put(rewrite, 0);
+    }
+    for (Rewrite rewrite : rewrites) {
+      CircuitNode rewritten = run(rewrite, root);
+      if (rewritten == root) continue;
+      int after = countNodes(rewritten);
+      count(removed, rewrite, nodes - after);
+      root = rewritten;
+      nodes = after;
+
+      // the constants normalization produced fold into their parents in the same call
+      if (rewrite == Rewrite.THRESHOLD_NORMALIZATION && rewrites.contains(Rewrite.CONSTANT_FOLDING)) {
+        rewritten = run(Rewrite.CONSTANT_FOLDING, root);
+        if (rewritten != root) {
+          after = countNodes(rewritten);
+          count(removed, Rewrite.CONSTANT_FOLDING, nodes - after);
+          root = rewritten;
+          nodes = after;
+        }
+      }
+    }
+
+    return new Result(root == c.getRoot() ? c : new Circuit(root), nodesBefore, nodes, removed);
+  }
+
+  private static CircuitNode run(Rewrite rewrite, CircuitNode root) throws InterruptedException {
+    return switch (rewrite) {
+      case CONSTANT_FOLDING -> new ConstantFolding().run(root);
+      case THRESHOLD_NORMALIZATION -> new ThresholdNormalization().run(root);
+      case DOUBLE_NEGATION -> new DoubleNegation().run(root);
+      case FLATTENING -> new Flattening(root).run(root);
+    };
+  }
+
+  private void count(EnumMap<Rewrite, Integer> removed, Rewrite rewrite, int nodes) {
+    removed.merge(rewrite, nodes, Integer::sum);
+    totalRemoved.get(rewrite).add(nodes);
+  }
+
+  /** @return the number of nodes removed by {@code rewrite} over all circuits optimized so far */
+  public long getTotalRemoved(Rewrite rewrite) {
+    return totalRemoved.get(rewrite).sum();
+  }
+
+  static int countNodes(CircuitNode root) throws InterruptedException {
+    Set<CircuitNode> seen = new HashSet<>();
+    ArrayDeque<CircuitNode> stack = new ArrayDeque<>();
+    seen.add(root);
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      for (CircuitNode arg : stack.pop().getArgs()) {
+        if (seen.add(arg)) {
+          stack.push(arg);
+        }
+      }
+    }
+    return seen.size();
+  }
+
+  /**
+   * A single rewrite applied to every node after its arguments. Nodes are keyed and compared by
+   * equality, so that the views of a {@link circuit.MappedCircuit}, which are created anew on every
+   * access, are rewritten once per mapped node.
+   */
+  private abstract static class Pass {
+    private final Map<CircuitNode, CircuitNode> rewritten = new HashMap<>();
+
+    /** @return the replacement of {@code node}, whose arguments are already rewritten to {@code args} */
+    abstract CircuitNode rewrite(CircuitNode node, CircuitNode[] args) throws InterruptedException;
+
+    CircuitNode run(CircuitNode root) throws InterruptedException {
+      ArrayDeque<CircuitNode> stack = new ArrayDeque<>();
+      stack.push(root);
+      while (!stack.isEmpty()) {
+        CircuitNode node = stack.peek();
+        if (rewritten.containsKey(node)) {
+          stack.pop();
+          continue;
+        }
+
+        CircuitNode[] original = node.getArgs();
+        boolean ready = true;
+        for (CircuitNode arg : original) {
+          if (!rewritten.containsKey(arg)) {
+            stack.push(arg);
+            ready = false;
+          }
+        }
+        if (!ready) continue;
+
+        stack.pop();
+        CircuitNode[] args = original;
+        for (int i = 0; i < original.length; ++i) {
+          CircuitNode arg = rewritten.get(original[i]);
+          if (!arg.equals(original[i])) {
+            if (args == original) args = original.clone();
+            args[i] = arg;
+          }
+        }
+        rewritten.put(node, rewrite(node, args));
+      }
+      return rewritten.get(root);
+    }
+  }
+
+  /** @return {@code node} if its arguments are unchanged, a copy with {@code args} otherwise */
+  private static CircuitNode rebuild(CircuitNode node, CircuitNode[] args) throws InterruptedException {
+    if (Arrays.equals(args, node.getArgs())) return node;
+    return switch (node.getType()) {
+      case GT, LT -> CircuitNode.mk(node.getType(), ((ThresholdNode) node).getThreshold(), args);
+      default -> CircuitNode.mk(node.getType(), args);
+    };
+  }
+
+  private static class ConstantFolding extends Pass {
+    private final CircuitNode constTrue = CircuitNode.mk(true);
+    private final CircuitNode constFalse = CircuitNode.mk(false);
+
+    private CircuitNode constant(boolean value) {
+      return value ? constTrue : constFalse;
+    }
+
+    /** @return the value of a constant, {@code null} if {@code node} is not one */
+    private Boolean valueOf(CircuitNode node) {
+      return node == constTrue ? Boolean.TRUE : node == constFalse ? Boolean.FALSE : null;
+    }
+
+    @Override
+    CircuitNode rewrite(CircuitNode node, CircuitNode[] args) throws InterruptedException {
+      return switch (node.getType()) {
+        case LEAF -> ((LeafNode) node).mayBlock() ? node : constant(((LeafNode) node).getValue());
+        case NOT -> {
+          Boolean value = valueOf(args[0]);
+          yield value == null ? rebuild(node, args) : constant(!value);
+        }
+        case AND, OR -> foldAndOr(node, args);
+        case IF -> foldIf(node, args);
+        case GT, LT -> foldThreshold(node, args);
+      };
+    }
+
+    private CircuitNode foldAndOr(CircuitNode node, CircuitNode[] args) throws InterruptedException {
+      // AND is decided by a false argument, OR by a true one
+      boolean decisive = node.getType() == NodeType.OR;
+      List<CircuitNode> remaining = new ArrayList<>(args.length);
+      for (CircuitNode arg : args) {
+        Boolean value = valueOf(arg);
+        if (value == null) {
+          remaining.add(arg);
+        } else if (value == decisive) {
+          return constant(decisive);
+        }
+      }
+      if (remaining.isEmpty()) return constant(!decisive);
+      if (remaining.size() == 1) return remaining.get(0);
+      if (remaining.size() == args.length) return rebuild(node, args);
+      return CircuitNode.mk(node.getType(), remaining.toArray(new CircuitNode[0]));
+    }
+
+    private CircuitNode foldIf(CircuitNode node, CircuitNode[] args) throws InterruptedException {
+      Boolean condition = valueOf(args[0]);
+      if (condition != null) return condition ? args[1] : args[2];
+      if (args[1].equals(args[2])) return args[1];
+
+      Boolean first = valueOf(args[1]);
+      Boolean second = valueOf(args[2]);
+      if (first != null && second != null) {
+        // the branches differ
+        return first ? args[0] : CircuitNode.mk(NodeType.NOT, args[0]);
+      }
+      return rebuild(node, args);
+    }
+
+    private CircuitNode foldThreshold(CircuitNode node, CircuitNode[] args) throws InterruptedException {
+      int threshold = ((ThresholdNode) node).getThreshold();
+      List<CircuitNode> remaining = new ArrayList<>(args.length);
+      for (CircuitNode arg : args) {
+        Boolean value = valueOf(arg);
+        if (value == null) {
+          remaining.add(arg);
+        } else if (value) {
+          --threshold;
+        }
+      }
+      if (remaining.size() == args.length) return rebuild(node, args);
+
+      // the threshold over the remaining arguments
+      int n = remaining.size();
+      if (node.getType() == NodeType.GT) {
+        if (threshold < 0) return constant(true);
+        if (n <= threshold) return constant(false);
+      } else {
+        if (threshold <= 0) return constant(false);
+        if (n < threshold) return constant(true);
+      }
+      return CircuitNode.mk(node.getType(), threshold, remaining.toArray(new CircuitNode[0]));
+    }
+  }
+
+  private static class ThresholdNormalization extends Pass {
+    @Override
+    CircuitNode rewrite(CircuitNode node, CircuitNode[] args) throws InterruptedException {
+      if (node.getType() != NodeType.GT && node.getType() != NodeType.LT) {
+        return rebuild(node, args);
+      }
+
+      int threshold = ((ThresholdNode) node).getThreshold();
+      int n = args.length;
+      if (node.getType() == NodeType.GT) {
+        if (threshold >= n) return CircuitNode.mk(false);
+        if (threshold == 0) return n == 1 ? args[0] : CircuitNode.mk(NodeType.OR, args);
+        if (threshold == n - 1) return CircuitNode.mk(NodeType.AND, args);
+      } else {
+        if (threshold == 0) return CircuitNode.mk(false);
+        if (threshold > n) return CircuitNode.mk(true);
+      }
+      return rebuild(node, args);
+    }
+  }
+
+  private static class DoubleNegation extends Pass {
+    @Override
+    CircuitNode rewrite(CircuitNode node, CircuitNode[] args) throws InterruptedException {
+      if (node.getType() == NodeType.NOT && args[0].getType() == NodeType.NOT) {
+        return args[0].getArgs()[0];
+      }
+      return rebuild(node, args);
+    }
+  }
+
+  private static class Flattening extends Pass {
+    // number of parent edges of every node of the circuit before the pass
+    private final Map<CircuitNode, Integer> parents = new HashMap<>();
+
+    Flattening(CircuitNode root) throws InterruptedException {
+      Set<CircuitNode> seen = new HashSet<>();
+      ArrayDeque<CircuitNode> stack = new ArrayDeque<>();
+      seen.add(root);
+      stack.push(root);
+      while (!stack.isEmpty()) {
+        for (CircuitNode arg : stack.pop().getArgs()) {
+          parents.merge(arg, 1, Integer::sum);
+          if (seen.add(arg)) {
+            stack.push(arg);
+          }
+        }
+      }
+    }
+
+    @Override
+    CircuitNode rewrite(CircuitNode node, CircuitNode[] args) throws InterruptedException {
+      NodeType type = node.getType();
+      if (type != NodeType.AND && type != NodeType.OR) {
+        return rebuild(node, args);
+      }
+
+      CircuitNode[] original = node.getArgs();
+      boolean changed = false;
+      Set<CircuitNode> merged = new HashSet<>();
+      List<CircuitNode> flat = new ArrayList<>(args.length);
+      for (int i = 0; i < args.length; ++i) {
+        // only a node without other parents disappears when merged
+        if (args[i].getType() == type && parents.get(original[i]) == 1) {
+          changed = true;
+          for (CircuitNode inner : args[i].getArgs()) {
+            if (merged.add(inner)) flat.add(inner);
+          }
+        } else if (merged.add(args[i])) {
+          flat.add(args[i]);
+        } else {
+          // AND and OR are idempotent
+          changed = true;
+        }
+      }
+
+      if (!changed) return rebuild(node, args);
+      if (flat.size() == 1) return flat.get(0);
+      return CircuitNode.mk(type, flat.toArray(new CircuitNode[0]));
+    }
+  }
+}
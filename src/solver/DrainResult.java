@@ -0,0 +1,47 @@
+package solver;
+
+import java.time.Duration;
+
+/** Outcome of {@link ParallelCircuitSolver#drain(Duration)}. */
+public final class DrainResult {
+  private final Duration duration;
+  private final int completed;
+  private final int failed;
+  private final int cancelled;
+
+  DrainResult(Duration duration, int completed, int failed, int cancelled) {
+    this.duration = duration;
+    this.completed = completed;
+    this.failed = failed;
+    this.cancelled = cancelled;
+  }
+
+  /** @return time from the start of the drain until no solve was in flight */
+  public Duration getDuration() {
+    return duration;
+  }
+
+  /** @return solves in flight when the drain started whose value was determined within its timeout */
+  public int getCompletedSolves() {
+    return completed;
+  }
+
+  /**
+   * @return solves in flight when the drain started that completed exceptionally within its
+   *         timeout, expired, stopped or cancelled by someone else
+   */
+  public int getFailedSolves() {
+    return failed;
+  }
+
+  /** @return solves still in flight at the timeout, cancelled by the drain */
+  public int getCancelledSolves() {
+    return cancelled;
+  }
+
+  @Override
+  public String toString() {
+    return "drained in " + duration.toMillis() + " ms, " + completed + " completed, "
+           + failed + " failed, " + cancelled + " cancelled";
+  }
+}
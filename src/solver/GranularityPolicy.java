@@ -0,0 +1,35 @@
+package solver;
+
+/**
+ * Decides which subcircuits {@link ParallelCircuitSolver} evaluates inline,
+ * on the worker that reached them, instead of forking a task per node.
+ *
+ * <p>A subcircuit is evaluated inline if it has at most {@code maxInlineNodes} nodes
+ * (counted along every path, so shared nodes count once per path), its height is
+ * at most {@code maxInlineDepth} and none of its leaves may block.
+ */
+public final class GranularityPolicy {
+  /** Forks a task for every node. */
+  public static final GranularityPolicy ALWAYS_FORK = new GranularityPolicy(0, 0);
+
+  public static final GranularityPolicy DEFAULT = new GranularityPolicy(64, 16);
+
+  private final int maxInlineNodes;
+  private final int maxInlineDepth;
+
+  public GranularityPolicy(int maxInlineNodes, int maxInlineDepth) {
+    if (maxInlineNodes < 0 || maxInlineDepth < 0) {
+      throw new IllegalArgumentException("Inline limits must be non-negative.");
+    }
+    this.maxInlineNodes = maxInlineNodes;
+    this.maxInlineDepth = maxInlineDepth;
+  }
+
+  public int getMaxInlineNodes() {
+    return maxInlineNodes;
+  }
+
+  public int getMaxInlineDepth() {
+    return maxInlineDepth;
+  }
+}
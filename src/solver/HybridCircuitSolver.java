@@ -0,0 +1,193 @@
+package solver;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import circuit.AsyncCircuitValue;
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.CircuitSolver;
+import circuit.CircuitValue;
+import circuit.LeafNode;
+import circuit.NodeType;
+import demo.SequentialSolver;
+
+/**
+ * Solves every circuit either on the calling thread with {@link SequentialSolver}
+ * or with a {@link ParallelCircuitSolver}, whichever is expected to be faster.
+ *
+ * <p>A probe visits at most 1024 nodes of the circuit and lists their arguments, without
+ * evaluating any leaf. A circuit with a leaf that may block is always solved
+ * in parallel, the caller would otherwise wait for its leaves one after another. Other
+ * circuits are grouped by the size and fan-in the probe saw, and every group learns the
+ * average time of both engines: the faster one solves the circuits of the group, the other
+ * one every 16th of them so that its average follows the traffic. Until both have been
+ * measured, small or narrow circuits are solved sequentially.
+ */
+public class HybridCircuitSolver implements CircuitSolver {
+  private static final int PROBE_NODES = 1024;
+  private static final int EXPLORE_PERIOD = 16;
+  private static final double ALPHA = 0.2;
+
+  /** The engine solving a circuit. */
+  public enum Engine {
+    SEQUENTIAL, PARALLEL;
+
+    Engine other() {
+      return this == SEQUENTIAL ? PARALLEL : SEQUENTIAL;
+    }
+  }
+
+  private final SequentialSolver sequential = new SequentialSolver();
+  private final ParallelCircuitSolver parallel;
+  private final ConcurrentHashMap<Shape, Timings> timings = new ConcurrentHashMap<>();
+  private final LongAdder sequentialSolves = new LongAdder();
+  private final LongAdder parallelSolves = new LongAdder();
+
+  public HybridCircuitSolver() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  public HybridCircuitSolver(int parallelism) {
+    this(parallelism, new SolverOptions());
+  }
+
+  /** @param options options of the parallel engine, the sequential one has none */
+  public HybridCircuitSolver(int parallelism, SolverOptions options) {
+    this.parallel = new ParallelCircuitSolver(parallelism, options);
+  }
+
+  @Override
+  public CircuitValue solve(Circuit c) {
+    Probe probe;
+    try {
+      probe = Probe.of(c.getRoot());
+    } catch (InterruptedException e) {
+      // never thrown, inner nodes do not block
+      return parallel.solve(c);
+    }
+    Timings group = probe.blocking ? null : timings.computeIfAbsent(probe.shape(), s -> new Timings());
+    Engine engine = group == null ? Engine.PARALLEL : group.choose(probe.prior());
+
+    long start = System.nanoTime();
+    if (engine == Engine.SEQUENTIAL) {
+      sequentialSolves.increment();
+      CircuitValue value = sequential.solve(c);
+      group.record(Engine.SEQUENTIAL, System.nanoTime() - start);
+      return value;
+    }
+
+    parallelSolves.increment();
+    AsyncCircuitValue value = parallel.solve(c);
+    if (group != null) {
+      value.onComplete((v, e) -> {
+        if (e == null) group.record(Engine.PARALLEL, System.nanoTime() - start);
+      });
+    }
+    return value;
+  }
+
+  @Override
+  public void stop() {
+    sequential.stop();
+    parallel.stop();
+  }
+
+  /** @return the number of circuits solved by {@code engine} */
+  public long getSolves(Engine engine) {
+    return engine == Engine.SEQUENTIAL ? sequentialSolves.sum() : parallelSolves.sum();
+  }
+
+  /**
+   * Groups circuits the probe could not tell apart: the binary magnitudes of the number
+   * of nodes and of the largest fan-in, {@code complete} if the probe saw every node.
+   */
+  private record Shape(int sizeClass, int fanInClass, boolean complete) {}
+
+  /** What the probe saw of a circuit. */
+  private static final class Probe {
+    int nodes = 0;
+    int depth = 0;
+    int fanIn = 0;
+    boolean blocking = false;
+    boolean complete = true;
+
+    /** Walks the circuit depth first, so that the depth of a deep chain shows within the budget. */
+    static Probe of(CircuitNode root) throws InterruptedException {
+      Probe probe = new Probe();
+      ArrayDeque<CircuitNode> nodes = new ArrayDeque<>();
+      ArrayDeque<Integer> depths = new ArrayDeque<>();
+      nodes.push(root);
+      depths.push(1);
+
+      while (!nodes.isEmpty()) {
+        if (probe.nodes == PROBE_NODES) {
+          probe.complete = false;
+          break;
+        }
+        CircuitNode node = nodes.pop();
+        int depth = depths.pop();
+        ++probe.nodes;
+        probe.depth = Math.max(probe.depth, depth);
+
+        if (node.getType() == NodeType.LEAF) {
+          if (((LeafNode) node).mayBlock()) {
+            probe.blocking = true;
+            break;
+          }
+          continue;
+        }
+        CircuitNode[] args = node.getArgs();
+        probe.fanIn = Math.max(probe.fanIn, args.length);
+        for (CircuitNode arg : args) {
+          nodes.push(arg);
+          depths.push(depth + 1);
+        }
+      }
+      return probe;
+    }
+
+    Shape shape() {
+      return new Shape(32 - Integer.numberOfLeadingZeros(nodes),
+                       32 - Integer.numberOfLeadingZeros(fanIn), complete);
+    }
+
+    /** @return the engine of a group none of whose circuits has been solved by both engines */
+    Engine prior() {
+      // a circuit as deep as it is large has no arguments to evaluate in parallel
+      return complete || depth * 2 >= nodes ? Engine.SEQUENTIAL : Engine.PARALLEL;
+    }
+  }
+
+  /** Average solve times of both engines for a group of circuits. */
+  private static final class Timings {
+    private final AtomicLong solves = new AtomicLong();
+    // EWMA in nanoseconds, stored as the bits of a double
+    private final AtomicLong sequentialNanos = new AtomicLong(Double.doubleToRawLongBits(Double.NaN));
+    private final AtomicLong parallelNanos = new AtomicLong(Double.doubleToRawLongBits(Double.NaN));
+
+    Engine choose(Engine prior) {
+      double seq = Double.longBitsToDouble(sequentialNanos.get());
+      double par = Double.longBitsToDouble(parallelNanos.get());
+      Engine best = Double.isNaN(seq) || Double.isNaN(par) ? prior
+                    : seq <= par ? Engine.SEQUENTIAL : Engine.PARALLEL;
+      // now and then the other engine runs, so that its average follows the traffic
+      if (solves.incrementAndGet() % EXPLORE_PERIOD == 0) {
+        return best.other();
+      }
+      return best;
+    }
+
+    void record(Engine engine, long nanos) {
+      AtomicLong average = engine == Engine.SEQUENTIAL ? sequentialNanos : parallelNanos;
+      while (true) {
+        long bits = average.get();
+        double current = Double.longBitsToDouble(bits);
+        double next = Double.isNaN(current) ? nanos : current + ALPHA * (nanos - current);
+        if (average.compareAndSet(bits, Double.doubleToRawLongBits(next))) return;
+      }
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package solver;
+
+import circuit.CircuitNode;
+import circuit.LeafNode;
+import circuit.NodeType;
+import circuit.ThresholdNode;
+
+/**
+ * Evaluates small subcircuits sequentially on the calling thread,
+ * short-circuiting like {@code SequentialSolver}.
+ */
+class InlineEvaluator {
+  private final GranularityPolicy policy;
+  // null if leaf values are not cached
+  private final LeafValueCache leafCache;
+  // null if latencies are not recorded
+  private final LeafLatencyModel latency;
+
+  InlineEvaluator(GranularityPolicy policy, LeafValueCache leafCache, LeafLatencyModel latency) {
+    this.policy = policy;
+    this.leafCache = leafCache;
+    this.latency = latency;
+  }
+
+  /**
+   * Visits at most {@code maxInlineNodes} nodes. The check lists the arguments of the nodes
+   * it visits, which reads them from the file for the nodes of a {@link circuit.MappedCircuit}.
+   *
+   * @return whether the subcircuit rooted at {@code node} should be evaluated inline
+   */
+  boolean canInline(CircuitNode node) throws InterruptedException {
+    if (policy.getMaxInlineNodes() == 0) return false;
+    return countNodes(node, 0, policy.getMaxInlineNodes()) >= 0;
+  }
+
+  /**
+   * @return the number of nodes of the subcircuit if it is at most {@code budget},
+   *         -1 if it is larger or must not be inlined
+   */
+  private int countNodes(CircuitNode node, int depth, int budget) throws InterruptedException {
+    if (budget <= 0 || depth > policy.getMaxInlineDepth()) return -1;
+
+    if (node.getType() == NodeType.LEAF) {
+      return ((LeafNode) node).mayBlock() ? -1 : 1;
+    }
+
+    int count = 1;
+    for (CircuitNode child : node.getArgs()) {
+      int childCount = countNodes(child, depth + 1, budget - count);
+      if (childCount < 0) return -1;
+      count += childCount;
+    }
+    return count;
+  }
+
+  boolean evaluate(CircuitNode n) throws InterruptedException {
+    if (n.getType() == NodeType.LEAF) {
+      LeafNode leaf = (LeafNode) n;
+      if (latency != null) return latency.evaluate(leaf, leafCache);
+      return leafCache == null ? leaf.getValue() : leafCache.getValue(leaf);
+    }
+
+    CircuitNode[] args = n.getArgs();
+
+    return switch (n.getType()) {
+      case IF -> evaluate(args[0]) ? evaluate(args[1]) : evaluate(args[2]);
+      case AND -> evaluateAND(args);
+      case OR -> evaluateOR(args);
+      case GT -> evaluateGT(args, ((ThresholdNode) n).getThreshold());
+      case LT -> evaluateLT(args, ((ThresholdNode) n).getThreshold());
+      case NOT -> !evaluate(args[0]);
+      default -> throw new RuntimeException("Illegal type " + n.getType());
+    };
+  }
+
+  private boolean evaluateAND(CircuitNode[] args) throws InterruptedException {
+    for (CircuitNode c : args) {
+      if (!evaluate(c)) return false;
+    }
+    return true;
+  }
+
+  private boolean evaluateOR(CircuitNode[] args) throws InterruptedException {
+    for (CircuitNode c : args) {
+      if (evaluate(c)) return true;
+    }
+    return false;
+  }
+
+  private boolean evaluateGT(CircuitNode[] args, int threshold) throws InterruptedException {
+    int gotTrue = 0;
+    for (int i = 0; i < args.length; ++i) {
+      if (evaluate(args[i])) gotTrue++;
+      if (gotTrue > threshold) return true;
+      // even if all remaining arguments are true
+      if (gotTrue + args.length - 1 - i <= threshold) return false;
+    }
+    return false;
+  }
+
+  private boolean evaluateLT(CircuitNode[] args, int threshold) throws InterruptedException {
+    int gotTrue = 0;
+    for (int i = 0; i < args.length; ++i) {
+      if (evaluate(args[i])) gotTrue++;
+      if (gotTrue >= threshold) return false;
+      // even if all remaining arguments are true
+      if (gotTrue + args.length - 1 - i < threshold) return true;
+    }
+    return gotTrue < threshold;
+  }
+}
@@ -0,0 +1,149 @@
+package solver;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import circuit.CircuitNode;
+import circuit.LeafNode;
+import circuit.NodeType;
+import circuit.ThresholdNode;
+
+/**
+ * Learned latencies of leaves, shared across solves and keyed by {@link LeafNode#getLatencyKey()}.
+ *
+ * <p>Every evaluation updates an exponentially weighted moving average of its key.
+ * A leaf interrupted before returning only raises the average, to at least the time it ran.
+ * Estimates of subcircuits roll the leaf averages up to the time the subcircuit
+ * needs to be determined when its arguments run in parallel: the cheapest argument
+ * for AND and OR, the cheapest arguments that can reach the threshold for GT and LT.
+ */
+public class LeafLatencyModel {
+  // subcircuits deeper or larger than this are estimated by the average leaf
+  private static final int MAX_ESTIMATE_DEPTH = 4;
+  private static final int MAX_ESTIMATE_NODES = 32;
+
+  private final double alpha;
+  // EWMA in nanoseconds, stored as the bits of a double
+  private final ConcurrentHashMap<Object, AtomicLong> averages = new ConcurrentHashMap<>();
+  // EWMA over all leaves, the estimate of leaves not seen yet
+  private final AtomicLong overall = new AtomicLong(Double.doubleToRawLongBits(Double.NaN));
+
+  public LeafLatencyModel() {
+    this(0.2);
+  }
+
+  /** @param alpha weight of a new sample, in (0, 1] */
+  public LeafLatencyModel(double alpha) {
+    if (!(alpha > 0 && alpha <= 1)) {
+      throw new IllegalArgumentException("The weight of a sample must be in (0, 1].");
+    }
+    this.alpha = alpha;
+  }
+
+  /**
+   * Evaluates {@code leaf}, through {@code cache} unless it is {@code null},
+   * and records how long it took.
+   */
+  public boolean evaluate(LeafNode leaf, LeafValueCache cache) throws InterruptedException {
+    long start = System.nanoTime();
+    try {
+      boolean value = cache == null ? leaf.getValue() : cache.getValue(leaf);
+      record(leaf, System.nanoTime() - start);
+      return value;
+    } catch (InterruptedException e) {
+      recordAtLeast(leaf, System.nanoTime() - start);
+      throw e;
+    }
+  }
+
+  public void record(LeafNode leaf, long nanos) {
+    update(average(leaf), nanos, false);
+    update(overall, nanos, false);
+  }
+
+  /** Records an evaluation that ran for {@code nanos} without finishing. */
+  void recordAtLeast(LeafNode leaf, long nanos) {
+    update(average(leaf), nanos, true);
+  }
+
+  private AtomicLong average(LeafNode leaf) {
+    return averages.computeIfAbsent(leaf.getLatencyKey(),
+                                    k -> new AtomicLong(Double.doubleToRawLongBits(Double.NaN)));
+  }
+
+  private void update(AtomicLong average, long nanos, boolean lowerBound) {
+    while (true) {
+      long bits = average.get();
+      double current = Double.longBitsToDouble(bits);
+      double next;
+      if (Double.isNaN(current)) {
+        next = nanos;
+      } else if (lowerBound) {
+        if (nanos <= current) return;
+        next = nanos;
+      } else {
+        next = current + alpha * (nanos - current);
+      }
+      if (average.compareAndSet(bits, Double.doubleToRawLongBits(next))) return;
+    }
+  }
+
+  /** @return the estimated latency of {@code leaf} in nanoseconds */
+  public double estimateNanos(LeafNode leaf) {
+    AtomicLong average = averages.get(leaf.getLatencyKey());
+    if (average != null) {
+      double value = Double.longBitsToDouble(average.get());
+      if (!Double.isNaN(value)) return value;
+    }
+    return leaf.mayBlock() ? overallNanos() : 0.0;
+  }
+
+  private double overallNanos() {
+    double value = Double.longBitsToDouble(overall.get());
+    return Double.isNaN(value) ? 0.0 : value;
+  }
+
+  /**
+   * @return the estimated time in nanoseconds to determine {@code node}
+   *         if its arguments are evaluated in parallel
+   */
+  public double estimateNanos(CircuitNode node) throws InterruptedException {
+    return estimate(node, 0, new int[] {MAX_ESTIMATE_NODES});
+  }
+
+  private double estimate(CircuitNode node, int depth, int[] budget) throws InterruptedException {
+    if (node.getType() == NodeType.LEAF) {
+      return estimateNanos((LeafNode) node);
+    }
+    CircuitNode[] args = node.getArgs();
+    if (depth >= MAX_ESTIMATE_DEPTH || args.length > MAX_ESTIMATE_NODES || --budget[0] < 0) {
+      return overallNanos();
+    }
+
+    return switch (node.getType()) {
+      case NOT -> estimate(args[0], depth + 1, budget);
+      case IF -> Math.max(estimate(args[0], depth + 1, budget),
+                          Math.min(estimate(args[1], depth + 1, budget),
+                                   estimate(args[2], depth + 1, budget)));
+      case AND, OR -> {
+        double cheapest = Double.POSITIVE_INFINITY;
+        for (CircuitNode arg : args) {
+          cheapest = Math.min(cheapest, estimate(arg, depth + 1, budget));
+        }
+        yield cheapest;
+      }
+      case GT, LT -> {
+        double[] costs = new double[args.length];
+        for (int i = 0; i < args.length; ++i) {
+          costs[i] = estimate(args[i], depth + 1, budget);
+        }
+        Arrays.sort(costs);
+        // enough arguments to reach the threshold, or to miss it
+        int threshold = ((ThresholdNode) node).getThreshold();
+        yield costs[Math.max(0, Math.min(threshold, args.length - 1))];
+      }
+      default -> throw new RuntimeException("Illegal type " + node.getType());
+    };
+  }
+}
@@ -0,0 +1,147 @@
+package solver;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import circuit.LeafNode;
+
+/**
+ * Cache of leaf values shared across solves, keyed by {@link LeafNode#getCacheKey()}.
+ *
+ * <p>The cache holds at most {@code maxSize} values, evicting the least recently used one,
+ * and a value expires {@code ttl} after it was computed. Concurrent lookups of a missing key
+ * compute the value once: the first caller calls {@code getValue()}, the others wait for it.
+ * If the computing caller is interrupted, a waiting caller takes over the computation.
+ */
+public class LeafValueCache {
+  private final int maxSize;
+  private final long ttlNanos;
+
+  // guarded by itself, access ordered
+  private final LinkedHashMap<Object, Entry> entries;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  private static class Entry {
+    final CompletableFuture<Boolean> value = new CompletableFuture<>();
+    volatile long computedAt;
+
+    boolean isExpired(long now, long ttlNanos) {
+      return value.isDone() && now - computedAt > ttlNanos;
+    }
+  }
+
+  /**
+   * @param maxSize maximal number of cached values
+   * @param ttl     time after which a cached value is computed again
+   */
+  public LeafValueCache(int maxSize, Duration ttl) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("The cache size must be positive.");
+    }
+    this.maxSize = maxSize;
+    this.ttlNanos = ttl.toNanos();
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+        if (size() > LeafValueCache.this.maxSize) {
+          evictions.increment();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the value of the leaf, calling {@code leaf.getValue()} only if
+   * no valid value is cached and no other thread is computing it.
+   *
+   * @throws InterruptedException if the calling thread is interrupted while computing
+   *                              or waiting for the value
+   */
+  public boolean getValue(LeafNode leaf) throws InterruptedException {
+    Object key = leaf.getCacheKey();
+    if (key == null) {
+      return leaf.getValue();
+    }
+
+    while (true) {
+      Entry entry;
+      boolean computing = false;
+      synchronized (entries) {
+        entry = entries.get(key);
+        if (entry == null || entry.isExpired(System.nanoTime(), ttlNanos)) {
+          entry = new Entry();
+          entries.put(key, entry);
+          computing = true;
+        }
+      }
+
+      if (computing) {
+        misses.increment();
+        return compute(key, entry, leaf);
+      }
+
+      try {
+        boolean value = entry.value.get();
+        hits.increment();
+        return value;
+      } catch (ExecutionException e) {
+        // the computing thread failed, retry
+        if (!(e.getCause() instanceof InterruptedException)) {
+          throw new RuntimeException(e.getCause());
+        }
+      }
+    }
+  }
+
+  private boolean compute(Object key, Entry entry, LeafNode leaf) throws InterruptedException {
+    try {
+      boolean value = leaf.getValue();
+      entry.computedAt = System.nanoTime();
+      entry.value.complete(value);
+      return value;
+    } catch (InterruptedException | RuntimeException e) {
+      synchronized (entries) {
+        entries.remove(key, entry);
+      }
+      entry.value.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  /** Removes all cached values. Values being computed are still delivered to their waiters. */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /** @return number of lookups answered by a cached or concurrently computed value */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /** @return number of lookups that called {@code getValue()} on the leaf */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /** @return number of values evicted because the cache was full */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+}
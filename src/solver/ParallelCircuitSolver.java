@@ -1,35 +1,146 @@
 package solver;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import circuit.AsyncCircuitValue;
 import circuit.Circuit;
 import circuit.CircuitNode;
 import circuit.CircuitSolver;
-import circuit.CircuitValue;
+import circuit.MultiOutputCircuit;
 import circuit.NodeType;
 import solver.paralell.nodes.ParallelIfNode;
 import solver.paralell.nodes.ParallelNode;
 
 public class ParallelCircuitSolver implements CircuitSolver {
   private final AtomicBoolean stop = new AtomicBoolean(false);
+  // new solves are refused while draining, until restart()
+  private volatile boolean draining = false;
   private final Set<ParallelCircuitValue> activeValues = ConcurrentHashMap.newKeySet();
+  private final Set<BatchCircuitValue> activeBatches = ConcurrentHashMap.newKeySet();
 
   private final ForkJoinPool pool;
+  // shared across solves, null if leaf values are not cached
+  private final LeafValueCache leafCache;
+  // runs the blocking getValue() of leaves, null if leaves are evaluated in the pool
+  private final ExecutorService leafExecutor;
+  private final InlineEvaluator inlineEvaluator;
+  // null if circuits are solved as they are
+  private final CircuitOptimizer optimizer;
+  // shared across solves, null if arguments are evaluated in their order
+  private final LeafLatencyModel latencyModel;
+  private final SpeculationPolicy speculation;
+  private final SpeculationStats speculationStats = new SpeculationStats();
+  private final boolean collectMetrics;
+  // null if no one listens for the metrics of solves
+  private final SolveMetrics.Listener metricsListener;
+  // identifies solves in flight recorder events
+  private final AtomicLong solveIds = new AtomicLong();
 
   public ParallelCircuitSolver() {
-    this.pool = new ForkJoinPool();
+    this(Runtime.getRuntime().availableProcessors());
   }
 
   public ParallelCircuitSolver(int parallelism) {
+    this(parallelism, new SolverOptions());
+  }
+
+  public ParallelCircuitSolver(int parallelism, SolverOptions options) {
+    this(parallelism, options, null);
+  }
+
+  /**
+   * @param leafExecutor executor running the evaluation of leaves, owned by the solver.
+   *                     Values are propagated up the circuit in the pool.
+   */
+  protected ParallelCircuitSolver(int parallelism, SolverOptions options,
+                                  ExecutorService leafExecutor) {
     this.pool = new ForkJoinPool(parallelism);
+    this.leafCache = options.getLeafCache();
+    this.leafExecutor = leafExecutor;
+    this.latencyModel = options.getLatencyModel();
+    this.inlineEvaluator = new InlineEvaluator(options.getGranularity(), leafCache, latencyModel);
+    this.optimizer = options.getOptimizer();
+    this.speculation = options.getSpeculation();
+    this.collectMetrics = options.hasMetrics();
+    this.metricsListener = options.getMetricsListener();
+  }
+
+  /** @return the counts of speculatively started IF branches over all solves */
+  public SpeculationStats getSpeculationStats() {
+    return speculationStats;
+  }
+
+  /**
+   * Stops accepting solves and waits for the solves in flight to complete, cancelling
+   * the ones still running after {@code timeout}. Solves submitted while draining are
+   * stopped right away. The pool is kept, {@link #restart()} accepts solves again.
+   */
+  public DrainResult drain(Duration timeout) throws InterruptedException {
+    long start = System.nanoTime();
+    draining = true;
+
+    // every solve added after this snapshot sees the draining flag
+    List<ParallelCircuitValue> inFlight = new ArrayList<>(activeValues);
+    for (BatchCircuitValue batch : activeBatches) {
+      for (int i = 0; i < batch.size(); ++i) {
+        inFlight.add(batch.value(i));
+      }
+    }
+
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[inFlight.size()];
+    for (int i = 0; i < futures.length; ++i) {
+      futures[i] = inFlight.get(i).toCompletionStage().toCompletableFuture();
+    }
+    try {
+      CompletableFuture.allOf(futures).get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException | ExecutionException e) {
+      // a stopped solve completes exceptionally, the rest is cancelled below
+    }
+
+    int failed = 0;
+    int cancelled = 0;
+    for (int i = 0; i < futures.length; ++i) {
+      if (inFlight.get(i).cancel()) {
+        ++cancelled;
+      } else if (futures[i].isCompletedExceptionally()) {
+        ++failed;
+      }
+    }
+    return new DrainResult(Duration.ofNanos(System.nanoTime() - start),
+                           inFlight.size() - failed - cancelled, failed, cancelled);
+  }
+
+  /**
+   * Accepts solves again after {@link #drain(Duration)}, reusing the workers of the pool.
+   *
+   * @throws IllegalStateException if the solver has been stopped
+   */
+  public void restart() {
+    if (stop.get()) {
+      throw new IllegalStateException("A stopped solver cannot be restarted.");
+    }
+    draining = false;
   }
 
   @Override
@@ -38,53 +149,395 @@ public class ParallelCircuitSolver implements CircuitSolver {
       val.stop();
     }
     activeValues.clear();
+    for (BatchCircuitValue batch : activeBatches) {
+      batch.stop();
+    }
+    activeBatches.clear();
     stop.set(true);
 
     pool.shutdownNow();
+    if (leafExecutor != null) {
+      leafExecutor.shutdownNow();
+    }
   }
 
   @Override
-  public CircuitValue solve(Circuit c) {
+  public AsyncCircuitValue solve(Circuit c) {
+    return solve(c, null);
+  }
+
+  /**
+   * Solves {@code c} within {@code deadline}. Once the deadline passes, the tasks of the solve
+   * are cancelled, its running leaves interrupted and the value completed exceptionally with a
+   * {@code TimeoutException}. The deadlines of all solves are kept by a single timer wheel.
+   * The deadline includes the optimization of {@code c}, which runs in the pool.
+   *
+   * @param deadline time from now, {@code null} to wait for the value however long it takes
+   */
+  public AsyncCircuitValue solve(Circuit c, Duration deadline) {
     ParallelCircuitValue result = new ParallelCircuitValue();
     activeValues.add(result);
-    
-    if (stop.get()) {
+    result.onComplete((v, e) -> activeValues.remove(result));
+
+    if (stop.get() || draining) {
       result.stop();
       return result;
     }
 
-    ParallelNode rootNode = ParallelNode.mk(c.getRoot(), null);
-
+    Evaluation evaluation = new Evaluation(result);
+    if (deadline != null) {
+      evaluation.expireAfter(deadline);
+    }
 
     // Submit the task to the ForkJoinPool
-    ForkJoinTask<Void> rootTask = new InterruptibleTask(rootNode, result, null);
-
-    pool.submit(rootTask);
+    pool.submit(new StartTask(evaluation, c));
 
     // Return immediately after submitting the task
     return result;
   }
 
-  private class InterruptibleTask extends ForkJoinTask<Void> 
+  /**
+   * Optimizes the circuit of a solve and forks the tasks of its outputs. Runs in the pool
+   * rather than on the thread submitting the solve, as constant folding evaluates the leaves
+   * that do not block, however long they take.
+   */
+  private class StartTask extends RecursiveAction {
+    private final Evaluation evaluation;
+    // the circuit of a single output, null if the outputs are given
+    private final Circuit circuit;
+    private final CircuitNode[] outputs;
+
+    StartTask(Evaluation evaluation, Circuit circuit) {
+      this.evaluation = evaluation;
+      this.circuit = circuit;
+      this.outputs = null;
+    }
+
+    /** The outputs are solved as they are. */
+    StartTask(Evaluation evaluation, CircuitNode[] outputs) {
+      this.evaluation = evaluation;
+      this.circuit = null;
+      this.outputs = outputs;
+    }
+
+    @Override
+    protected void compute() {
+      if (evaluation.isDone()) return;
+      InterruptibleTask[] outputTasks;
+      try {
+        outputTasks = evaluation.start(circuit == null ? outputs : new CircuitNode[] {rootOf(circuit)});
+      } catch (InterruptedException e) {
+        evaluation.stop();
+        return;
+      }
+      if (evaluation.isDone()) {
+        // expired or cancelled meanwhile, maybe abandoned before the tasks existed
+        for (InterruptibleTask task : outputTasks) {
+          task.cancel(true);
+        }
+        return;
+      }
+      for (InterruptibleTask task : outputTasks) {
+        // an output occurring several times, or reached from another output, is forked once
+        if (task.claimFork()) {
+          task.fork();
+          evaluation.forked();
+        }
+      }
+    }
+  }
+
+  /** @return the root of {@code c}, optimized if the solver has an optimizer */
+  private CircuitNode rootOf(Circuit c) throws InterruptedException {
+    return optimizer == null ? c.getRoot() : optimizer.optimize(c).getCircuit().getRoot();
+  }
+
+  /**
+   * Solves all circuits with a single submission to the pool.
+   * The submitted task forks the solves of the circuits from within the pool.
+   *
+   * @return the values of the circuits, in the order of {@code circuits}
+   */
+  public BatchCircuitValue solveAll(Circuit[] circuits) {
+    BatchCircuitValue batch = new BatchCircuitValue(circuits.length);
+    activeBatches.add(batch);
+    batch.toCompletionStage().whenComplete((v, e) -> activeBatches.remove(batch));
+
+    if (stop.get() || draining) {
+      batch.stop();
+      return batch;
+    }
+
+    pool.submit(new BatchTask(circuits, batch, 0, circuits.length));
+
+    return batch;
+  }
+
+  public BatchCircuitValue solveAll(List<Circuit> circuits) {
+    return solveAll(circuits.toArray(new Circuit[0]));
+  }
+
+  /**
+   * Solves all outputs of {@code c} in a single solve: a node reachable from several outputs
+   * is evaluated once, and its task is cancelled only once no undetermined output needs it.
+   * Cancelling the value of one output cancels the subcircuits only that output needs.
+   * The outputs are solved as they are, an optimizer would rewrite them one at a time
+   * and lose the nodes they share.
+   *
+   * @return the values of the outputs, in the order of {@link MultiOutputCircuit#getOutputs()}
+   */
+  public BatchCircuitValue solve(MultiOutputCircuit c) {
+    BatchCircuitValue batch = new BatchCircuitValue(c.getOutputCount());
+    activeBatches.add(batch);
+    batch.toCompletionStage().whenComplete((v, e) -> activeBatches.remove(batch));
+
+    if (stop.get() || draining) {
+      batch.stop();
+      return batch;
+    }
+
+    ParallelCircuitValue[] results = new ParallelCircuitValue[c.getOutputCount()];
+    for (int i = 0; i < results.length; ++i) {
+      results[i] = batch.value(i);
+    }
+    pool.submit(new StartTask(new Evaluation(results), c.getOutputs().toArray(new CircuitNode[0])));
+    return batch;
+  }
+
+  /** Starts the solves of a range of a batch, splitting it so that idle workers can steal halves. */
+  private class BatchTask extends RecursiveAction {
+    private static final int SEQUENTIAL_RANGE = 8;
+
+    private final Circuit[] circuits;
+    private final BatchCircuitValue batch;
+    private final int from;
+    private final int to;
+
+    BatchTask(Circuit[] circuits, BatchCircuitValue batch, int from, int to) {
+      this.circuits = circuits;
+      this.batch = batch;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > SEQUENTIAL_RANGE) {
+        int mid = (from + to) >>> 1;
+        invokeAll(new BatchTask(circuits, batch, from, mid),
+                  new BatchTask(circuits, batch, mid, to));
+        return;
+      }
+      for (int i = from; i < to; ++i) {
+        if (stop.get()) {
+          batch.value(i).stop();
+          continue;
+        }
+        new StartTask(new Evaluation(batch.value(i)), circuits[i]).fork();
+      }
+    }
+  }
+
+  /**
+   * State of a single solve, of one or several outputs.
+   *
+   * <p>A circuit node reachable from several parents is evaluated once per solve:
+   * every distinct {@code CircuitNode} has at most one live task, which fans its value
+   * out to all of its parents. The task is cancelled only once no parent needs it anymore.
+   *
+   * <p>A determined task is dropped, only its value is kept for the parents acquiring
+   * the node later, so the tasks live are the ones of the undetermined frontier.
+   * Once the values of all outputs complete, the state of the solve is dropped as well.
+   */
+  private class Evaluation {
+    // one value per output
+    private final ParallelCircuitValue[] results;
+    // outputs whose value has not completed
+    private final AtomicInteger pendingOutputs;
+    private final ConcurrentHashMap<CircuitNode, InterruptibleTask> tasks = new ConcurrentHashMap<>();
+    // values of the determined nodes whose task has been dropped
+    private final ConcurrentHashMap<CircuitNode, Boolean> values = new ConcurrentHashMap<>();
+    // task of every output, set before any task runs
+    private volatile InterruptibleTask[] outputs;
+    // outputs whose task has been released
+    private final AtomicIntegerArray releasedOutputs;
+    // null if the solver does not collect metrics
+    private final SolveMetrics metrics;
+    private final long id = solveIds.incrementAndGet();
+
+    Evaluation(ParallelCircuitValue... results) {
+      this.results = results;
+      this.pendingOutputs = new AtomicInteger(results.length);
+      this.releasedOutputs = new AtomicIntegerArray(results.length);
+      this.metrics = collectMetrics ? new SolveMetrics() : null;
+      for (int i = 0; i < results.length; ++i) {
+        int output = i;
+        results[i].onComplete((v, e) -> outputCompleted(output, e != null));
+        SolverEvents.solveSubmitted(id, results[i]);
+        if (metrics != null) {
+          results[i].setMetrics(metrics);
+        }
+      }
+    }
+
+    /** @return whether the values of all outputs have completed */
+    boolean isDone() {
+      return pendingOutputs.get() == 0;
+    }
+
+    void stop() {
+      for (ParallelCircuitValue result : results) {
+        result.stop();
+      }
+    }
+
+    private void outputCompleted(int output, boolean exceptionally) {
+      if (exceptionally && results.length > 1) {
+        // the other outputs keep the nodes they share with this one
+        releaseOutput(output);
+      }
+      if (pendingOutputs.decrementAndGet() > 0) return;
+
+      // a determined solve has released its tasks already, a stopped, expired
+      // or cancelled one gives them up
+      abandon(exceptionally);
+      if (metricsListener != null && metrics != null) {
+        metricsListener.solveCompleted(metrics);
+      }
+    }
+
+    void forked() {
+      if (metrics != null) metrics.taskForked();
+    }
+
+    /** Deadlines are only set on solves with a single output. */
+    void expireAfter(Duration deadline) {
+      // the expired value completes in the common pool, and abandons the solve there
+      TimerWheel.Timeout timeout = TimerWheel.shared().schedule(results[0]::expire, deadline.toNanos());
+      // a solve completed in time drops its timeout, and with it the reference to the tasks
+      results[0].onComplete((v, e) -> timeout.cancel());
+    }
+
+    /**
+     * Drops the tasks and values of the solve, so that its state can be collected
+     * even while cancelled tasks wait in the queues of the pool.
+     *
+     * @param cancelTasks whether to cancel every task still live, which interrupts the running leaves
+     */
+    private void abandon(boolean cancelTasks) {
+      if (cancelTasks) {
+        for (InterruptibleTask task : tasks.values()) {
+          task.cancel(true);
+        }
+      }
+      tasks.clear();
+      values.clear();
+    }
+
+    /** Replaces the task of a determined node by its value. */
+    void determined(InterruptibleTask task, boolean value) {
+      if (isDone()) return;
+      CircuitNode node = task.eNode.getNode();
+      // the value is visible before the task is dropped, so that acquire finds either
+      values.put(node, value);
+      tasks.remove(node, task);
+    }
+
+    /**
+     * Creates the tasks of the outputs, each waiting for its value through an edge without parent.
+     *
+     * @return the task of every output, to be forked once each
+     */
+    InterruptibleTask[] start(CircuitNode... nodes) {
+      InterruptibleTask[] tasks = new InterruptibleTask[nodes.length];
+      for (int i = 0; i < nodes.length; ++i) {
+        // nothing runs yet, so no output is determined already
+        tasks[i] = acquire(nodes[i]);
+        tasks[i].output = true;
+        tasks[i].addParent(null, i);
+      }
+      outputs = tasks;
+      for (int i = 0; i < nodes.length; ++i) {
+        // completed before its task existed, so exceptionally
+        if (results.length > 1 && results[i].isDone()) {
+          releaseOutput(i);
+        }
+      }
+      return tasks;
+    }
+
+    /** Releases the task of an output whose value completed exceptionally, once it exists. */
+    private void releaseOutput(int output) {
+      InterruptibleTask[] tasks = outputs;
+      if (tasks != null && releasedOutputs.compareAndSet(output, 0, 1)) {
+        tasks[output].release();
+      }
+    }
+
+    /**
+     * Returns the task evaluating {@code node}, counting one more parent interested in its value.
+     *
+     * @return {@code null} if the node is determined and its task has been dropped,
+     *         its value is then in {@code values}
+     */
+    InterruptibleTask acquire(CircuitNode node) {
+      while (true) {
+        InterruptibleTask task = tasks.get(node);
+        if (task == null) {
+          if (values.containsKey(node)) return null;
+          InterruptibleTask created = new InterruptibleTask(ParallelNode.mk(node, leafCache, latencyModel), this);
+          if (metrics != null) metrics.nodeCreated();
+          task = tasks.putIfAbsent(node, created);
+          if (task == null) {
+            return created;
+          }
+        }
+        if (task.tryAcquire()) {
+          return task;
+        }
+        // the task has been cancelled, a fresh one replaces it
+        tasks.remove(node, task);
+      }
+    }
+  }
+
+  /** An occurrence of a node among the arguments of {@code parent}, or output {@code index} without parent. */
+  private record Edge(InterruptibleTask parent, int index) {}
+
+  /** Marks a child slot released by its parent. */
+  private static final Object RELEASED = new Object();
+
+  private class InterruptibleTask extends ForkJoinTask<Void>
                                     implements RunnableFuture<Void> {
-    private ParallelNode eNode;
-    private ParallelCircuitValue result;
-    private ConcurrentLinkedQueue<ForkJoinTask<Void>> childTasks;
-    private InterruptibleTask parentTask;
+    private final ParallelNode eNode;
+    private final Evaluation evaluation;
+    // whether the node is an output of the solve
+    private boolean output = false;
+
+    // number of parents still needing the value, -1 once no parent needs it
+    private final AtomicInteger interestedParents = new AtomicInteger(1);
+
+    // parents waiting for the value, null once the value is determined
+    private List<Edge> parents = new ArrayList<>(1);
+    private final Object parentsLock = new Object();
+    private volatile Boolean value;
+
+    // tasks of the children indexed like the node's arguments, set on expansion;
+    // a slot holds the value of a determined child instead of its task
+    private volatile AtomicReferenceArray<Object> childTasks;
+    private volatile boolean childrenReleased = false;
+
     private AtomicBoolean wasCancelled = new AtomicBoolean(false);
 
     // cancelLock is needed to prevent stray interrupts in cancel
     private final Object cancelLock = new Object();
     volatile Thread runner;
 
-    public InterruptibleTask(ParallelNode eNode, ParallelCircuitValue result,
-                             InterruptibleTask parentTask) {
+    public InterruptibleTask(ParallelNode eNode, Evaluation evaluation) {
       this.eNode = eNode;
-      this.result = result;
-      this.parentTask = parentTask;
-      childTasks = new ConcurrentLinkedQueue<>();
+      this.evaluation = evaluation;
     }
-    
+
     public final Void getRawResult() { return null; }
     public final void setRawResult(Void v) {}
 
@@ -102,15 +555,51 @@ public class ParallelCircuitSolver implements CircuitSolver {
         throw new RuntimeException(ex);
       } finally {
         synchronized (cancelLock) {
-          runner = null;
+          // the leaf executor may already be running this task
+          if (runner == Thread.currentThread()) {
+            runner = null;
+          }
         }
-          
+
         Thread.interrupted();
       }
     }
 
     public final void run() { invoke(); }
 
+    /**
+     * Evaluates the leaf of this task in the leaf executor
+     * and propagates its value up in the pool.
+     */
+    private void evaluateLeaf() {
+      synchronized (cancelLock) {
+        if (wasCancelled.get()) return;
+        runner = Thread.currentThread();
+      }
+
+      Boolean leafValue;
+      try {
+        leafValue = determineValue();
+      } catch (InterruptedException e) {
+        return;
+      } finally {
+        synchronized (cancelLock) {
+          runner = null;
+        }
+        Thread.interrupted();
+      }
+
+      try {
+        pool.execute(() -> {
+          try {
+            propagateUp(this, leafValue);
+          } catch (InterruptedException e) {}
+        });
+      } catch (RejectedExecutionException e) {
+        // the solver has been stopped
+      }
+    }
+
     @Override
     public final boolean cancel(boolean mayInterruptIfRunning) {
       if (wasCancelled.getAndSet(true)) {
@@ -119,120 +608,395 @@ public class ParallelCircuitSolver implements CircuitSolver {
 
       Thread t = null;
       boolean stat = super.cancel(false);
+      if (mayInterruptIfRunning && evaluation.metrics != null) {
+        evaluation.metrics.taskCancelled();
+      }
 
       synchronized (cancelLock) {
         // without cancelLock it could happen that
         // the cancelling thread fetches non-null runner
         // but before it manages to interrupt it, the executing thread
-        // finishes the task and switches to another one. 
+        // finishes the task and switches to another one.
         if (mayInterruptIfRunning && (t = runner) != null) {
           try {
-            t.interrupt(); 
-            
+            t.interrupt();
+
           }  catch (Throwable ignore) {}
         }
       }
+      SolverEvents.taskCancelled(evaluation.id, eNode.getType(), t != null);
 
-      ForkJoinTask<Void> child;
-      while ((child = childTasks.poll()) != null) {
-        child.cancel(mayInterruptIfRunning);
+      synchronized (parentsLock) {
+        // a cancelled task may stay queued in the pool, it must not keep its parents
+        if (value == null) {
+          parents = null;
+        }
       }
+      releaseChildren();
       return stat;
-      
+
+    }
+
+    private boolean tryAcquire() {
+      // a determined value can always be shared
+      if (value != null) return true;
+
+      int count;
+      do {
+        count = interestedParents.get();
+        if (count < 0) return false;
+      } while (!interestedParents.compareAndSet(count, count + 1));
+      return true;
+    }
+
+    /**
+     * Called by a parent that no longer needs the value of this task.
+     * Once no parent needs it, an undetermined task is cancelled.
+     */
+    private void release() {
+      if (interestedParents.decrementAndGet() == 0
+          && interestedParents.compareAndSet(0, -1)
+          && value == null) {
+        evaluation.tasks.remove(eNode.getNode(), this);
+        cancel(true);
+      }
+    }
+
+    /**
+     * Only the first caller may fork a task shared by several parents.
+     */
+    private boolean claimFork() {
+      return compareAndSetForkJoinTaskTag((short) 0, (short) 1);
+    }
+
+    /**
+     * Registers {@code parent} as waiting for the value of this task.
+     *
+     * @return the value if it is already determined (the parent is not registered then),
+     *         {@code null} otherwise, or if the task has been cancelled
+     */
+    private Boolean addParent(InterruptibleTask parent, int index) {
+      synchronized (parentsLock) {
+        if (parents == null) return value;
+        parents.add(new Edge(parent, index));
+        return null;
+      }
     }
-        
+
+    /**
+     * Records the value of this task.
+     *
+     * @return the parents waiting for the value
+     */
+    private List<Edge> determine(boolean value) {
+      synchronized (parentsLock) {
+        List<Edge> waiting = parents;
+        if (waiting == null) return List.of();
+        this.value = value;
+        parents = null;
+        return waiting;
+      }
+    }
+
+    /** @return whether a task evaluated the child */
+    private boolean releaseChild(int index) {
+      Object child = childTasks.getAndSet(index, RELEASED);
+      if (child == null || child == RELEASED) {
+        return false;
+      }
+      InterruptibleTask task = child instanceof InterruptibleTask t ? t : null;
+      if (index != 0 && eNode.getType() == NodeType.IF) {
+        int chosen = ((ParallelIfNode) eNode).chosenBranch();
+        if (chosen != -1 && chosen != index) {
+          speculationStats.discarded(task == null || task.value != null);
+        }
+      }
+      if (task != null) {
+        task.release();
+      }
+      return true;
+    }
+
+    /** Replaces the task of child {@code index} by its value, unless the slot has been released. */
+    private void childDetermined(int index, InterruptibleTask child, boolean childValue) {
+      childTasks.compareAndSet(index, child, childValue);
+    }
+
+    /**
+     * Acquires the task of child {@code i} and forks it, unless the slot
+     * has already been taken, by a task, an inlined child or a release.
+     */
+    private void startChild(int i) throws InterruptedException {
+      if (childrenReleased || childTasks.get(i) != null) return;
+
+      CircuitNode node = eNode.getChildren()[i];
+      InterruptibleTask child = evaluation.acquire(node);
+      if (child == null) {
+        Boolean known = evaluation.values.get(node);
+        // null once the solve has completed and dropped its values
+        if (known != null && childTasks.compareAndSet(i, null, known)) {
+          registerChild(this, i, known);
+        }
+        return;
+      }
+
+      if (!childTasks.compareAndSet(i, null, child)) {
+        // the slot has already been released (IF branch cancelled)
+        child.release();
+        return;
+      }
+
+      Boolean childValue = child.addParent(this, i);
+      if (childValue != null) {
+        childDetermined(i, child, childValue);
+        registerChild(this, i, childValue);
+      } else if (child.claimFork()) {
+        child.fork();
+        evaluation.forked();
+      }
+    }
+
+    /**
+     * Evaluates the node when its value does not depend on children,
+     * counting leaves in the metrics and in flight recorder events.
+     */
+    private Boolean determineValue() throws InterruptedException {
+      if (eNode.getType() != NodeType.LEAF) {
+        return eNode.isDetermined();
+      }
+      SolveMetrics metrics = evaluation.metrics;
+      SolverEvents.LeafEvaluation event = SolverEvents.leafStarted();
+      if (metrics != null) metrics.leafStarted();
+      long start = metrics != null ? System.nanoTime() : 0;
+      try {
+        Boolean leafValue = eNode.isDetermined();
+        if (metrics != null) metrics.leafCompleted();
+        SolverEvents.leafEnded(event, evaluation.id, eNode.getNode(), leafValue, false);
+        return leafValue;
+      } catch (InterruptedException e) {
+        if (metrics != null) metrics.leafInterrupted(System.nanoTime() - start);
+        SolverEvents.leafEnded(event, evaluation.id, eNode.getNode(), false, true);
+        throw e;
+      }
+    }
+
+    /** Decides whether to start branch {@code i} of this IF node before its condition is known. */
+    private boolean speculate(int i) throws InterruptedException {
+      if (((ParallelIfNode) eNode).chosenBranch() != -1) {
+        // not speculation, the chosen branch is started by the condition
+        return false;
+      }
+      SpeculationPolicy policy = speculation.forNode(eNode.getNode());
+      boolean start = switch (policy.getMode()) {
+        case EAGER -> true;
+        case CONDITION_FIRST -> false;
+        // a non-positive surplus means that other workers are idle enough to steal
+        case ADAPTIVE -> getSurplusQueuedTaskCount() <= 0
+            || (latencyModel != null && latencyModel.estimateNanos(eNode.getChildren()[i])
+                                        <= policy.getMaxBranchCost().toNanos());
+      };
+      if (start) {
+        speculationStats.speculated();
+      } else {
+        speculationStats.deferred();
+      }
+      return start;
+    }
+
+    private void releaseChildren() {
+      childrenReleased = true;
+      var tasks = childTasks;
+      if (tasks == null) return;
+      for (int i = 0; i < tasks.length(); ++i) {
+        releaseChild(i);
+      }
+    }
+
     public Void call() throws InterruptedException {
-      if (result.isDone() || isCancelled()) {
+      if (evaluation.isDone() || isCancelled()) {
         return null;
       }
       if (stop.get()) {
-        result.stop();
+        evaluation.stop();
         return null; // Stop task if stopped is true
       }
 
-      
+
       // If the value of the node does not depend on its children,
-      // propagate its value up to the parent
-      if (eNode.isValueTriviallyKnown()) {
-        propagateUp(); // Propagate the result up
-      } else if (eNode.isMyParentDetermined() == null) {
+      // propagate its value up to the parents
+      if (output && inlineEvaluator.canInline(eNode.getNode())) {
+        // the whole circuit is small
+        propagateUp(this, inlineEvaluator.evaluate(eNode.getNode()));
+      } else if (leafExecutor != null && eNode.getType() == NodeType.LEAF) {
+        try {
+          leafExecutor.execute(this::evaluateLeaf);
+        } catch (RejectedExecutionException e) {
+          evaluation.stop(); // the solver has been stopped
+        }
+      } else if (eNode.isValueTriviallyKnown()) {
+        propagateUp(this, determineValue()); // Propagate the result up
+      } else {
         // Otherwise, process internal nodes (AND, OR, etc.)
         CircuitNode[] children = eNode.getChildren();
-        
-        // Helper tasks list is required because for some nodes the translation 
-        // to Array may be needed to cancel specific branches.
-        // Adding and forking at once may lead to the problem where array
-        // toArray() will result in a smaller array.
-        // (The standard DOES NOT guarantee atomicity of addAll and toArray)
+        childTasks = new AtomicReferenceArray<>(children.length);
+
+        // Small subcircuits are evaluated inline first, they may determine
+        // the node before any task is forked.
+        boolean[] inlined = new boolean[children.length];
+        for (int i = 0; i < children.length && !childrenReleased; ++i) {
+          if (inlineEvaluator.canInline(children[i])) {
+            inlined[i] = true;
+            // skip IF branches released or started by an inlined condition,
+            // the slot of an inlined child holds no task to release
+            if (childTasks.compareAndSet(i, null, RELEASED)) {
+              registerChild(this, i, inlineEvaluator.evaluate(children[i]));
+            }
+          }
+        }
 
-        List<ForkJoinTask<Void>> tasks = new ArrayList<>(children.length);
+        int[] order = forkOrder(eNode.getNode(), children);
+        for (int k = 0; k < children.length && !childrenReleased; ++k) {
+          int i = order == null ? k : order[k];
+          if (inlined[i] || childTasks.get(i) != null) continue;
+          // a branch not speculated on is started once the condition chooses it
+          if (i != 0 && eNode.getType() == NodeType.IF && !speculate(i)) continue;
 
-        for (CircuitNode child : children) {
-          tasks.add(new InterruptibleTask(ParallelNode.mk(child, eNode), result, this));
+          startChild(i);
         }
-
-        childTasks.addAll(tasks);
-        
-        if (!wasCancelled.get()) {
-          for (var task : tasks) {
-            task.fork();
-          } 
+        // the node may have been determined or cancelled during the expansion,
+        // children acquired after that must be released as well
+        if (childrenReleased) {
+          releaseChildren();
         }
       }
       return null;
     }
+  }
 
-    private void propagateUp() throws InterruptedException {
-      // This method propagates the determined value up the tree
-      Boolean value = eNode.isDetermined();
-      
-      InterruptibleTask temp = this;
-      InterruptibleTask prev = null;
-      while (temp.parentTask != null && value != null) {
-        value = temp.eNode.getParentNode().registerChild(value, temp.eNode);
-        prev = temp;
-        temp = temp.parentTask;
-      }
+  /** Nodes with more arguments are forked in argument order, as estimating them all costs too much. */
+  private static final int MAX_ORDERED_ARGS = 1024;
+
+  /**
+   * A worker runs the tasks it forked last first, while idle workers steal the ones forked first.
+   * Forking the most expensive arguments first thus lets the cheapest path to a determination
+   * run first, and moves the expensive arguments to other workers.
+   *
+   * @return the order in which to fork the arguments, {@code null} for argument order
+   */
+  private int[] forkOrder(CircuitNode node, CircuitNode[] children) throws InterruptedException {
+    if (latencyModel == null || children.length < 2 || children.length > MAX_ORDERED_ARGS) {
+      return null;
+    }
+    NodeType type = node.getType();
+    if (type != NodeType.AND && type != NodeType.OR && type != NodeType.GT && type != NodeType.LT) {
+      return null;
+    }
+
+    double[] costs = new double[children.length];
+    Integer[] order = new Integer[children.length];
+    for (int i = 0; i < children.length; ++i) {
+      costs[i] = latencyModel.estimateNanos(children[i]);
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Double.compare(costs[b], costs[a]));
+
+    int[] result = new int[children.length];
+    for (int i = 0; i < result.length; ++i) {
+      result[i] = order[i];
+    }
+    return result;
+  }
 
-      if (temp.parentTask == null && value != null) {
-        // we reached the root node and the root value is determined
-        // if not stopped set the root valeu
-        if (!stop.get()) {
-          result.setValue(value);
-          activeValues.remove(result);  
+  private void registerChild(InterruptibleTask parent, int index, boolean childValue)
+      throws InterruptedException {
+    Boolean value = parent.eNode.registerChild(childValue, index);
+    if (value != null) {
+      propagateUp(parent, value);
+      return;
+    }
+    countLateRegistration(parent);
+    if (parent.eNode.getType() == NodeType.IF) {
+      // IF is special because if the first value is determined, we can also
+      // cancel one of the branches
+      ifNodeBranchCancel(parent);
+    }
+  }
+
+  /** Counts a value registered with a parent that had already been determined. */
+  private static void countLateRegistration(InterruptibleTask parent) throws InterruptedException {
+    SolveMetrics metrics = parent.evaluation.metrics;
+    if (metrics != null && parent.eNode.wasAlreadyDetermined() != null) {
+      metrics.lateRegistration();
+    }
+  }
+
+  /**
+   * Propagates the determined value of {@code task} to all of its parents,
+   * and further up for every parent that becomes determined.
+   * Determined nodes release their children, which cancels the ones
+   * that no other parent needs.
+   */
+  private void propagateUp(InterruptibleTask task, Boolean value) throws InterruptedException {
+    if (value == null) return;
+
+    ArrayDeque<InterruptibleTask> determined = new ArrayDeque<>();
+    ArrayDeque<Boolean> values = new ArrayDeque<>();
+    determined.push(task);
+    values.push(value);
+
+    while (!determined.isEmpty()) {
+      InterruptibleTask temp = determined.pop();
+      boolean tempValue = values.pop();
+
+      List<Edge> parents = temp.determine(tempValue);
+      temp.releaseChildren();
+      temp.evaluation.determined(temp, tempValue);
+
+      for (Edge edge : parents) {
+        InterruptibleTask parent = edge.parent();
+        if (parent == null) {
+          // we reached an output and its value is determined
+          // if not stopped set the value
+          if (!stop.get()) {
+            if (temp.evaluation.metrics != null) {
+              temp.evaluation.metrics.rootDetermined();
+            }
+            temp.evaluation.results[edge.index()].setValue(tempValue);
+          }
+          continue;
+        }
+        parent.childDetermined(edge.index(), temp, tempValue);
+        Boolean parentValue = parent.eNode.registerChild(tempValue, edge.index());
+        if (parentValue != null) {
+          determined.push(parent);
+          values.push(parentValue);
+          continue;
+        }
+        countLateRegistration(parent);
+        if (parent.eNode.getType() == NodeType.IF) {
+          ifNodeBranchCancel(parent);
         }
-        propagateDown(temp);
-      } else if (temp.eNode.getType() == NodeType.IF) {
-        // IF is special because if the first value is determined, we can also 
-        // cancel one of the branches 
-        ifNodeBranchCancel(temp);
-        propagateDown(prev);
-      } else { // we have not reached the root
-        // // temp is not determined
-        // // prev was determined
-        propagateDown(prev);
       }
     }
-    private void propagateDown(InterruptibleTask task) {
-      if (task == null) return;
-      task.cancel(true);
-    }
-    
-    private void ifNodeBranchCancel(InterruptibleTask ifTask) {
-      ParallelIfNode n = (ParallelIfNode) ifTask.eNode;
+  }
+
+  private void ifNodeBranchCancel(InterruptibleTask ifTask) throws InterruptedException {
+    ParallelIfNode n = (ParallelIfNode) ifTask.eNode;
 
-      int branchToCancel = n.canBranchBeCancelled();
+    int branchToCancel = n.canBranchBeCancelled();
 
+    if (branchToCancel == -1) return;
 
-      if (branchToCancel == -1) return;
-      
-      @SuppressWarnings("unchecked")
-      ForkJoinTask<Void>[] tasks = ifTask.childTasks.toArray(new ForkJoinTask[0]);
+    // every later registration finds the branch cancelled already
+    if (ifTask.childTasks.get(branchToCancel) != RELEASED) {
+      boolean started = ifTask.releaseChild(branchToCancel);
+      SolverEvents.ifBranchCancelled(ifTask.evaluation.id, branchToCancel, started);
+    }
 
-      // If the length is less than 3, the node has already been computed and is being canceled.
-      if (tasks.length < 3) return;
-      
-      tasks[branchToCancel].cancel(true);
+    int chosen = n.chosenBranch();
+    if (chosen != -1) {
+      // the speculation policy may have left the chosen branch unstarted
+      ifTask.startChild(chosen);
     }
   }
-}
\ No newline at end of file
+}
@@ -1,38 +1,109 @@
 package solver;
 
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
 
-import circuit.CircuitValue;
+import circuit.AsyncCircuitValue;
 
-public class ParallelCircuitValue implements CircuitValue {
-    private volatile Boolean value;
-    private final CountDownLatch latch = new CountDownLatch(1);
-    private final AtomicBoolean stopped = new AtomicBoolean(false);
+public class ParallelCircuitValue implements AsyncCircuitValue {
+    // completed exceptionally with CancellationException when stopped
+    private final CompletableFuture<Boolean> value = new CompletableFuture<>();
+    // notified on completion, null if the value is not part of a batch
+    private final BatchCircuitValue batch;
+    // null unless the solver collects metrics
+    private volatile SolveMetrics metrics;
 
+    public ParallelCircuitValue() {
+        this(null);
+    }
+
+    ParallelCircuitValue(BatchCircuitValue batch) {
+        this.batch = batch;
+    }
+
+    /** @return the metrics of the solve, {@code null} if the solver does not collect them */
+    public SolveMetrics getMetrics() {
+        return metrics;
+    }
+
+    void setMetrics(SolveMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** @return whether the value is known or the computation stopped */
     public boolean isDone() {
-        return value != null;
+        return value.isDone();
     }
 
     public void setValue(boolean value) {
-        this.value = value;
-        latch.countDown(); // Releases all waiting threads once value is set
+        // Releases all waiting threads once value is set
+        completed(this.value.complete(value));
     }
 
     public void stop() {
-        stopped.set(true);
-        latch.countDown(); // Ensure any waiting threads are released
+        // Ensure any waiting threads are released
+        completed(value.completeExceptionally(new CancellationException("The computation has been stopped.")));
+    }
+
+    /**
+     * Completes the value exceptionally with a {@code TimeoutException}, the deadline of the solve has passed.
+     * The value completes in the common pool, so that its listeners do not delay the timer calling this.
+     */
+    void expire() {
+        ForkJoinPool.commonPool().execute(
+            () -> completed(value.completeExceptionally(new TimeoutException("The deadline of the solve has passed."))));
+    }
+
+    /**
+     * Completes the value exceptionally with a {@code CancellationException}. The solver
+     * cancels the tasks of a solve once its value completes, interrupting its running leaves.
+     * Other solves are not affected.
+     */
+    @Override
+    public boolean cancel() {
+        return completed(value.completeExceptionally(new CancellationException("The solve has been cancelled.")));
+    }
+
+    private boolean completed(boolean completedNow) {
+        if (completedNow && batch != null) {
+            batch.valueCompleted();
+        }
+        return completedNow;
     }
 
     @Override
     public boolean getValue() throws InterruptedException {
         // Block until value is set or stop is called
-        latch.await();
+        try {
+            return value.get();
+        } catch (ExecutionException | CancellationException e) {
+            throw new InterruptedException();
+        }
+    }
 
-        if (stopped.get()) { 
+    @Override
+    public boolean getValue(Duration timeout) throws InterruptedException, TimeoutException {
+        try {
+            return value.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | CancellationException e) {
             throw new InterruptedException();
         }
+    }
+
+    @Override
+    public CompletionStage<Boolean> toCompletionStage() {
+        return value.minimalCompletionStage();
+    }
 
-        return this.value;
+    @Override
+    public void onComplete(BiConsumer<Boolean, Throwable> listener) {
+        value.whenComplete(listener);
     }
 }
@@ -0,0 +1,123 @@
+package solver;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a single solve of a {@link ParallelCircuitSolver}, collected only if
+ * enabled with {@link SolverOptions#withMetrics(boolean)}.
+ *
+ * <p>The counters are striped, so the workers of a solve update them without contending.
+ * Tasks left running when the root is determined are cancelled afterwards, the counters
+ * of cancelled work may therefore still grow after the value of the solve is known.
+ * Leaves evaluated inline, within the task of an ancestor, are not counted.
+ */
+public final class SolveMetrics {
+  /** Notified once the value of a solve is known or the solve has been stopped. */
+  @FunctionalInterface
+  public interface Listener {
+    void solveCompleted(SolveMetrics metrics);
+  }
+
+  private final long submittedNanos = System.nanoTime();
+  // -1 until the root is determined
+  private volatile long rootNanos = -1;
+
+  private final LongAdder nodesCreated = new LongAdder();
+  private final LongAdder tasksForked = new LongAdder();
+  private final LongAdder tasksCancelled = new LongAdder();
+  private final LongAdder leavesStarted = new LongAdder();
+  private final LongAdder leavesCompleted = new LongAdder();
+  private final LongAdder leavesInterrupted = new LongAdder();
+  private final LongAdder wastedLeafNanos = new LongAdder();
+  private final LongAdder lateRegistrations = new LongAdder();
+
+  SolveMetrics() {}
+
+  void nodeCreated() {
+    nodesCreated.increment();
+  }
+
+  void taskForked() {
+    tasksForked.increment();
+  }
+
+  void taskCancelled() {
+    tasksCancelled.increment();
+  }
+
+  void leafStarted() {
+    leavesStarted.increment();
+  }
+
+  void leafCompleted() {
+    leavesCompleted.increment();
+  }
+
+  void leafInterrupted(long nanos) {
+    leavesInterrupted.increment();
+    wastedLeafNanos.add(nanos);
+  }
+
+  void lateRegistration() {
+    lateRegistrations.increment();
+  }
+
+  void rootDetermined() {
+    rootNanos = System.nanoTime() - submittedNanos;
+  }
+
+  /** @return evaluation states of nodes created, one per task */
+  public long getNodesCreated() {
+    return nodesCreated.sum();
+  }
+
+  /** @return tasks forked or submitted to the pool */
+  public long getTasksForked() {
+    return tasksForked.sum();
+  }
+
+  /** @return tasks cancelled because no parent needed their value anymore */
+  public long getTasksCancelled() {
+    return tasksCancelled.sum();
+  }
+
+  public long getLeavesStarted() {
+    return leavesStarted.sum();
+  }
+
+  public long getLeavesCompleted() {
+    return leavesCompleted.sum();
+  }
+
+  public long getLeavesInterrupted() {
+    return leavesInterrupted.sum();
+  }
+
+  /** @return the time leaves ran before they were interrupted, in nanoseconds */
+  public long getWastedLeafNanos() {
+    return wastedLeafNanos.sum();
+  }
+
+  /**
+   * Registration of a value is lock-free, concurrent registrations race on the state of the parent.
+   *
+   * @return values registered with a parent another value had already determined
+   */
+  public long getLateRegistrations() {
+    return lateRegistrations.sum();
+  }
+
+  /** @return nanoseconds from the submission of the solve until its root was determined, -1 if it was not */
+  public long getRootNanos() {
+    return rootNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "nodes " + getNodesCreated() + ", forked " + getTasksForked()
+           + ", cancelled " + getTasksCancelled() + ", leaves " + getLeavesStarted()
+           + "/" + getLeavesCompleted() + "/" + getLeavesInterrupted()
+           + " (started/completed/interrupted), wasted leaf ns " + getWastedLeafNanos()
+           + ", late registrations " + getLateRegistrations() + ", root ns " + getRootNanos();
+  }
+}
@@ -0,0 +1,190 @@
+package solver;
+
+import circuit.CircuitNode;
+import circuit.NodeType;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder events of {@link ParallelCircuitSolver}.
+ *
+ * <p>Events are only created once the flight recorder has been initialized, by a recording
+ * started on the command line or through the API: loading the first event class initializes
+ * the recorder, which takes hundreds of milliseconds. Afterwards, events are only committed
+ * while a recording enables them. Leaf evaluations shorter than the threshold of the recording,
+ * 1 ms by default, are not recorded; change it with the setting
+ * {@code circuit.LeafEvaluation#threshold}.
+ */
+final class SolverEvents {
+  private static final String CATEGORY = "Circuit Solver";
+
+  private SolverEvents() {}
+
+  private static boolean recorderInitialized() {
+    return FlightRecorder.isInitialized();
+  }
+
+  /** Commits the submission of a solve and, once it completes, its completion or stop. */
+  static void solveSubmitted(long solveId, ParallelCircuitValue result) {
+    if (!recorderInitialized()) return;
+
+    SolveSubmitted submitted = new SolveSubmitted();
+    if (submitted.isEnabled()) {
+      submitted.solveId = solveId;
+      submitted.commit();
+    }
+
+    SolveCompleted completed = new SolveCompleted();
+    SolveStopped stopped = new SolveStopped();
+    if (!completed.isEnabled() && !stopped.isEnabled()) return;
+
+    completed.begin();
+    stopped.begin();
+    result.onComplete((value, e) -> {
+      if (e == null) {
+        completed.solveId = solveId;
+        completed.value = value;
+        completed.commit();
+      } else {
+        stopped.solveId = solveId;
+        stopped.commit();
+      }
+    });
+  }
+
+  /** @return the started event of a leaf evaluation, {@code null} if the recorder is not initialized */
+  static LeafEvaluation leafStarted() {
+    if (!recorderInitialized()) return null;
+    LeafEvaluation event = new LeafEvaluation();
+    event.begin();
+    return event;
+  }
+
+  static void leafEnded(LeafEvaluation event, long solveId, CircuitNode leaf,
+                        boolean value, boolean interrupted) {
+    if (event == null) return;
+    event.end();
+    if (event.shouldCommit()) {
+      event.solveId = solveId;
+      event.leafClass = leaf.getClass();
+      event.value = value;
+      event.interrupted = interrupted;
+      event.commit();
+    }
+  }
+
+  static void taskCancelled(long solveId, NodeType nodeType, boolean running) {
+    if (!recorderInitialized()) return;
+    TaskCancelled event = new TaskCancelled();
+    if (event.shouldCommit()) {
+      event.solveId = solveId;
+      event.nodeType = nodeType.name();
+      event.running = running;
+      event.commit();
+    }
+  }
+
+  static void ifBranchCancelled(long solveId, int index, boolean started) {
+    if (!recorderInitialized()) return;
+    IfBranchCancelled event = new IfBranchCancelled();
+    if (event.shouldCommit()) {
+      event.solveId = solveId;
+      event.index = index;
+      event.started = started;
+      event.commit();
+    }
+  }
+
+  @Name("circuit.SolveSubmitted")
+  @Label("Solve Submitted")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static final class SolveSubmitted extends Event {
+    @Label("Solve Id")
+    long solveId;
+  }
+
+  @Name("circuit.SolveCompleted")
+  @Label("Solve Completed")
+  @Description("A solve from its submission until the value of its root was known")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static final class SolveCompleted extends Event {
+    @Label("Solve Id")
+    long solveId;
+
+    @Label("Value")
+    boolean value;
+  }
+
+  @Name("circuit.SolveStopped")
+  @Label("Solve Stopped")
+  @Description("A solve from its submission until the solver stopped it")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static final class SolveStopped extends Event {
+    @Label("Solve Id")
+    long solveId;
+  }
+
+  @Name("circuit.LeafEvaluation")
+  @Label("Leaf Evaluation")
+  @Description("A call to getValue() of a leaf evaluated by its own task")
+  @Category(CATEGORY)
+  @Threshold("1 ms")
+  @StackTrace(false)
+  static final class LeafEvaluation extends Event {
+    @Label("Solve Id")
+    long solveId;
+
+    @Label("Leaf Class")
+    Class<?> leafClass;
+
+    @Label("Value")
+    boolean value;
+
+    @Label("Interrupted")
+    boolean interrupted;
+  }
+
+  @Name("circuit.TaskCancelled")
+  @Label("Task Cancelled")
+  @Description("The task of a subcircuit no parent needs anymore has been cancelled")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static final class TaskCancelled extends Event {
+    @Label("Solve Id")
+    long solveId;
+
+    @Label("Node Type")
+    String nodeType;
+
+    @Label("Running")
+    @Description("Whether a thread running the task has been interrupted")
+    boolean running;
+  }
+
+  @Name("circuit.IfBranchCancelled")
+  @Label("IF Branch Cancelled")
+  @Description("The condition of an IF node discarded a branch, or equal branches discarded the condition")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static final class IfBranchCancelled extends Event {
+    @Label("Solve Id")
+    long solveId;
+
+    @Label("Argument Index")
+    int index;
+
+    @Label("Started")
+    @Description("Whether a task had been started for the argument")
+    boolean started;
+  }
+}
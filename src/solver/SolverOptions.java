@@ -0,0 +1,120 @@
+package solver;
+
+/**
+ * Optional settings of a {@link ParallelCircuitSolver}. Instances are immutable,
+ * every {@code with} method returns a copy with one setting changed.
+ */
+public final class SolverOptions {
+  private final LeafValueCache leafCache;
+  private final GranularityPolicy granularity;
+  private final CircuitOptimizer optimizer;
+  private final LeafLatencyModel latencyModel;
+  private final SpeculationPolicy speculation;
+  private final boolean metrics;
+  private final SolveMetrics.Listener metricsListener;
+
+  public SolverOptions() {
+    this(null, GranularityPolicy.DEFAULT, null, null, SpeculationPolicy.EAGER, false, null);
+  }
+
+  private SolverOptions(LeafValueCache leafCache, GranularityPolicy granularity,
+                        CircuitOptimizer optimizer, LeafLatencyModel latencyModel,
+                        SpeculationPolicy speculation, boolean metrics,
+                        SolveMetrics.Listener metricsListener) {
+    this.leafCache = leafCache;
+    this.granularity = granularity;
+    this.optimizer = optimizer;
+    this.latencyModel = latencyModel;
+    this.speculation = speculation;
+    this.metrics = metrics;
+    this.metricsListener = metricsListener;
+  }
+
+  /**
+   * @param leafCache cache of leaf values shared by all solves of the solver,
+   *                  {@code null} to evaluate every leaf
+   */
+  public SolverOptions withLeafCache(LeafValueCache leafCache) {
+    return new SolverOptions(leafCache, granularity, optimizer, latencyModel, speculation,
+                             metrics, metricsListener);
+  }
+
+  public SolverOptions withGranularity(GranularityPolicy granularity) {
+    return new SolverOptions(leafCache, granularity, optimizer, latencyModel, speculation,
+                             metrics, metricsListener);
+  }
+
+  /**
+   * @param optimizer rewrites every circuit before it is solved,
+   *                  {@code null} to solve circuits as they are
+   */
+  public SolverOptions withOptimizer(CircuitOptimizer optimizer) {
+    return new SolverOptions(leafCache, granularity, optimizer, latencyModel, speculation,
+                             metrics, metricsListener);
+  }
+
+  /** @return the leaf value cache, {@code null} if leaf values are not cached */
+  public LeafValueCache getLeafCache() {
+    return leafCache;
+  }
+
+  public GranularityPolicy getGranularity() {
+    return granularity;
+  }
+
+  /**
+   * @param latencyModel learns the latencies of leaves, by which the arguments of AND, OR,
+   *                     GT and LT nodes are ordered; {@code null} to keep the argument order
+   */
+  public SolverOptions withLatencyModel(LeafLatencyModel latencyModel) {
+    return new SolverOptions(leafCache, granularity, optimizer, latencyModel, speculation,
+                             metrics, metricsListener);
+  }
+
+  public SolverOptions withSpeculation(SpeculationPolicy speculation) {
+    return new SolverOptions(leafCache, granularity, optimizer, latencyModel, speculation,
+                             metrics, metricsListener);
+  }
+
+  /**
+   * @param metrics whether every solve collects {@link SolveMetrics},
+   *                available from the values returned by the solver
+   */
+  public SolverOptions withMetrics(boolean metrics) {
+    return new SolverOptions(leafCache, granularity, optimizer, latencyModel, speculation,
+                             metrics, metricsListener);
+  }
+
+  /**
+   * @param metricsListener notified of the metrics of every solve once it completes,
+   *                        enables the metrics unless {@code null}
+   */
+  public SolverOptions withMetricsListener(SolveMetrics.Listener metricsListener) {
+    return new SolverOptions(leafCache, granularity, optimizer, latencyModel, speculation,
+                             metrics, metricsListener);
+  }
+
+  /** @return the optimizer, {@code null} if circuits are not optimized */
+  public CircuitOptimizer getOptimizer() {
+    return optimizer;
+  }
+
+  /** @return the latency model, {@code null} if arguments are evaluated in their order */
+  public LeafLatencyModel getLatencyModel() {
+    return latencyModel;
+  }
+
+  public SpeculationPolicy getSpeculation() {
+    return speculation;
+  }
+
+  /** @return whether solves collect metrics, also if only a listener has been set */
+  public boolean hasMetrics() {
+    return metrics || metricsListener != null;
+  }
+
+  /** @return the metrics listener, {@code null} if there is none */
+  public SolveMetrics.Listener getMetricsListener() {
+    return metricsListener;
+  }
+}
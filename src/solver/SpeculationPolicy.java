@@ -0,0 +1,89 @@
+package solver;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import circuit.CircuitNode;
+import circuit.NodeType;
+
+/**
+ * Decides when {@link ParallelCircuitSolver} starts the branches of an IF node
+ * before its condition is known.
+ *
+ * <p>A branch started early is speculation: once the condition is known, the branch
+ * it did not choose is cancelled and its work is lost. A branch not started early
+ * is started as soon as the condition chooses it.
+ *
+ * <p>Policies of single IF nodes override the policy of the solver. They are keyed
+ * by node identity, so a node rewritten by a {@link CircuitOptimizer} loses its policy.
+ */
+public final class SpeculationPolicy {
+  public enum Mode {
+    /** Starts both branches together with the condition. */
+    EAGER,
+    /** Starts only the branch chosen by the condition. */
+    CONDITION_FIRST,
+    /**
+     * Starts a branch early if another worker of the pool is idle, or if the
+     * {@link LeafLatencyModel} of the solver predicts the branch to take at most
+     * {@link SpeculationPolicy#getMaxBranchCost()}.
+     */
+    ADAPTIVE
+  }
+
+  public static final SpeculationPolicy EAGER = new SpeculationPolicy(Mode.EAGER, Duration.ZERO, Map.of());
+
+  public static final SpeculationPolicy CONDITION_FIRST =
+      new SpeculationPolicy(Mode.CONDITION_FIRST, Duration.ZERO, Map.of());
+
+  private final Mode mode;
+  private final Duration maxBranchCost;
+  private final Map<CircuitNode, SpeculationPolicy> nodePolicies;
+
+  private SpeculationPolicy(Mode mode, Duration maxBranchCost,
+                            Map<CircuitNode, SpeculationPolicy> nodePolicies) {
+    this.mode = mode;
+    this.maxBranchCost = maxBranchCost;
+    this.nodePolicies = nodePolicies;
+  }
+
+  /**
+   * @param maxBranchCost branches predicted to take at most this long are started early
+   *                      even without an idle worker; {@link Duration#ZERO} to rely on idle workers only
+   */
+  public static SpeculationPolicy adaptive(Duration maxBranchCost) {
+    if (maxBranchCost.isNegative()) {
+      throw new IllegalArgumentException("The branch cost bound must be non-negative.");
+    }
+    return new SpeculationPolicy(Mode.ADAPTIVE, maxBranchCost, Map.of());
+  }
+
+  /**
+   * @return a copy of this policy in which {@code policy} decides for {@code ifNode}
+   */
+  public SpeculationPolicy withNodePolicy(CircuitNode ifNode, SpeculationPolicy policy) {
+    if (ifNode.getType() != NodeType.IF) {
+      throw new IllegalArgumentException("Only IF nodes have a speculation policy.");
+    }
+    Map<CircuitNode, SpeculationPolicy> copy = new IdentityHashMap<>(nodePolicies);
+    // the overrides of policy itself do not apply
+    copy.put(ifNode, new SpeculationPolicy(policy.mode, policy.maxBranchCost, Map.of()));
+    return new SpeculationPolicy(mode, maxBranchCost, Collections.unmodifiableMap(copy));
+  }
+
+  /** @return the policy deciding for {@code ifNode} */
+  public SpeculationPolicy forNode(CircuitNode ifNode) {
+    return nodePolicies.isEmpty() ? this : nodePolicies.getOrDefault(ifNode, this);
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  /** @return the bound of {@link Mode#ADAPTIVE}, zero for the other modes */
+  public Duration getMaxBranchCost() {
+    return maxBranchCost;
+  }
+}
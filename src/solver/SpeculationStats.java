@@ -0,0 +1,55 @@
+package solver;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the branches of IF nodes a {@link ParallelCircuitSolver} started before
+ * their condition was known, and how many of them the condition then discarded.
+ * The counts cover all solves of the solver.
+ */
+public final class SpeculationStats {
+  private final LongAdder speculated = new LongAdder();
+  private final LongAdder deferred = new LongAdder();
+  private final LongAdder discarded = new LongAdder();
+  private final LongAdder discardedDetermined = new LongAdder();
+
+  SpeculationStats() {}
+
+  void speculated() {
+    speculated.increment();
+  }
+
+  void deferred() {
+    deferred.increment();
+  }
+
+  void discarded(boolean determined) {
+    discarded.increment();
+    if (determined) {
+      discardedDetermined.increment();
+    }
+  }
+
+  /** @return branches started before the condition of their IF node was known */
+  public long getSpeculatedBranches() {
+    return speculated.sum();
+  }
+
+  /** @return branches left for the condition to choose */
+  public long getDeferredBranches() {
+    return deferred.sum();
+  }
+
+  /** @return started branches cancelled because the condition chose the other branch */
+  public long getDiscardedBranches() {
+    return discarded.sum();
+  }
+
+  /**
+   * @return discarded branches that had already been determined, all of their work was lost;
+   *         the other discarded branches were interrupted part way
+   */
+  public long getDiscardedDeterminedBranches() {
+    return discardedDetermined.sum();
+  }
+}
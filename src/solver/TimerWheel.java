@@ -0,0 +1,197 @@
+package solver;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel running the tasks of many timeouts on a single daemon thread.
+ *
+ * <p>Scheduling and cancelling only enqueue the timeout, the wheel thread moves it in and out
+ * of its bucket on the next tick, so both are constant time whatever the number of timeouts.
+ * A bucket holds the timeouts due within one tick in any revolution of the wheel, the later
+ * ones count the revolutions left. Tasks run up to one tick late and must be short, they
+ * delay all other timeouts. The thread parks while no timeout is pending.
+ */
+final class TimerWheel {
+  private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final int WHEEL_SIZE = 512;
+  private static final int MASK = WHEEL_SIZE - 1;
+
+  private static final class Shared {
+    static final TimerWheel WHEEL = new TimerWheel();
+  }
+
+  /** @return the wheel shared by all solvers, started on first use */
+  static TimerWheel shared() {
+    return Shared.WHEEL;
+  }
+
+  private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+  private final ConcurrentLinkedQueue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+  private final long startNanos = System.nanoTime();
+  private final Thread worker;
+  // set by the worker before it parks without pending timeouts
+  private volatile boolean idle = false;
+
+  // accessed by the worker only
+  private long tick = 0;
+  private int pending = 0;
+
+  private TimerWheel() {
+    for (int i = 0; i < WHEEL_SIZE; ++i) {
+      wheel[i] = new Bucket();
+    }
+    worker = new Thread(this::run, "circuit-timer-wheel");
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  /** Runs {@code task} on the wheel thread once {@code delayNanos} have passed, unless cancelled first. */
+  Timeout schedule(Runnable task, long delayNanos) {
+    Timeout timeout = new Timeout(task, System.nanoTime() - startNanos + Math.max(0, delayNanos));
+    scheduled.add(timeout);
+    if (idle) {
+      LockSupport.unpark(worker);
+    }
+    return timeout;
+  }
+
+  private void run() {
+    while (true) {
+      if (pending == 0 && scheduled.isEmpty()) {
+        idle = true;
+        // recheck, a timeout scheduled before idle was set did not unpark the worker
+        while (scheduled.isEmpty()) {
+          LockSupport.park(this);
+        }
+        idle = false;
+        // no bucket has been skipped as all of them are empty
+        tick = Math.max(tick, (System.nanoTime() - startNanos) / TICK_NANOS);
+      }
+
+      long sleep = startNanos + (tick + 1) * TICK_NANOS - System.nanoTime();
+      if (sleep > 0) {
+        LockSupport.parkNanos(this, sleep);
+        continue;
+      }
+
+      removeCancelled();
+      transferScheduled();
+      wheel[(int) (tick & MASK)].expire((tick + 1) * TICK_NANOS);
+      ++tick;
+    }
+  }
+
+  private void transferScheduled() {
+    Timeout timeout;
+    while ((timeout = scheduled.poll()) != null) {
+      if (timeout.state.get() != Timeout.WAITING) continue;
+
+      long dueTick = Math.max(timeout.deadline / TICK_NANOS, tick);
+      timeout.rounds = (dueTick - tick) / WHEEL_SIZE;
+      wheel[(int) (dueTick & MASK)].add(timeout);
+    }
+  }
+
+  private void removeCancelled() {
+    Timeout timeout;
+    while ((timeout = cancelled.poll()) != null) {
+      if (timeout.bucket != null) {
+        timeout.bucket.remove(timeout);
+      }
+    }
+  }
+
+  final class Timeout {
+    private static final int WAITING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    // null once cancelled
+    private Runnable task;
+    // nanoseconds since the start of the wheel
+    private final long deadline;
+    private final AtomicInteger state = new AtomicInteger(WAITING);
+
+    // accessed by the worker only
+    private long rounds;
+    private Bucket bucket;
+    private Timeout prev;
+    private Timeout next;
+
+    private Timeout(Runnable task, long deadline) {
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    /** @return whether the task will not run, false if it has already run */
+    boolean cancel() {
+      if (!state.compareAndSet(WAITING, CANCELLED)) {
+        return state.get() == CANCELLED;
+      }
+      // releases the task right away, the timeout stays in its bucket until the next tick
+      task = null;
+      cancelled.add(this);
+      return true;
+    }
+  }
+
+  /** Doubly linked list of the timeouts of one slot of the wheel. */
+  private final class Bucket {
+    private Timeout head;
+    private Timeout tail;
+
+    void add(Timeout timeout) {
+      timeout.bucket = this;
+      timeout.prev = tail;
+      if (tail == null) {
+        head = timeout;
+      } else {
+        tail.next = timeout;
+      }
+      tail = timeout;
+      ++pending;
+    }
+
+    void remove(Timeout timeout) {
+      if (timeout.prev == null) {
+        head = timeout.next;
+      } else {
+        timeout.prev.next = timeout.next;
+      }
+      if (timeout.next == null) {
+        tail = timeout.prev;
+      } else {
+        timeout.next.prev = timeout.prev;
+      }
+      timeout.bucket = null;
+      timeout.prev = null;
+      timeout.next = null;
+      --pending;
+    }
+
+    /** Runs the timeouts of this slot due before {@code tickEnd}, nanoseconds since the start of the wheel. */
+    void expire(long tickEnd) {
+      Timeout timeout = head;
+      while (timeout != null) {
+        Timeout next = timeout.next;
+        if (timeout.rounds > 0) {
+          --timeout.rounds;
+        } else if (timeout.deadline < tickEnd) {
+          remove(timeout);
+          if (timeout.state.compareAndSet(Timeout.WAITING, Timeout.EXPIRED)) {
+            try {
+              timeout.task.run();
+            } catch (RuntimeException e) {
+              // a failing task must not stop the other timeouts
+            }
+          }
+        }
+        timeout = next;
+      }
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package solver;
+
+import java.util.concurrent.Executors;
+
+/**
+ * A {@link ParallelCircuitSolver} that evaluates every leaf on its own virtual thread.
+ *
+ * <p>Blocking {@code LeafNode.getValue()} calls do not occupy the workers of the pool,
+ * which only propagate values through the AND, OR, NOT, IF, GT and LT nodes.
+ * A circuit may therefore have many more concurrently blocked leaves than the pool has threads.
+ * Cancelled leaves are interrupted the same way as in {@code ParallelCircuitSolver}.
+ */
+public class VirtualThreadCircuitSolver extends ParallelCircuitSolver {
+  public VirtualThreadCircuitSolver() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param parallelism number of platform threads propagating values
+   */
+  public VirtualThreadCircuitSolver(int parallelism) {
+    this(parallelism, new SolverOptions());
+  }
+
+  public VirtualThreadCircuitSolver(int parallelism, SolverOptions options) {
+    super(parallelism, options, Executors.newVirtualThreadPerTaskExecutor());
+  }
+}
@@ -0,0 +1,195 @@
+package solver.compiled;
+
+import java.util.concurrent.RecursiveAction;
+
+import circuit.NodeType;
+
+/**
+ * Evaluates a compiled circuit over many leaf assignments at once.
+ *
+ * <p>Bit {@code j} of word {@code w} of a leaf is the value of the leaf in assignment
+ * {@code 64 * w + j}. Every pass over the circuit evaluates one word, 64 assignments:
+ * AND, OR, NOT and IF are single bitwise operations and GT and LT count their true
+ * arguments in bit-sliced counters. Leaves are not called, only their supplied values are used.
+ */
+public class BitSlicedEvaluator {
+  // words evaluated by one task, 4096 assignments
+  private static final int BLOCK_WORDS = 64;
+
+  private static final byte LEAF = (byte) NodeType.LEAF.ordinal();
+
+  private final CompiledCircuit c;
+  // every node after all of its arguments
+  private final int[] order;
+  // bit planes needed to count the arguments of the widest node
+  private final int counterBits;
+
+  public BitSlicedEvaluator(CompiledCircuit c) {
+    this.c = c;
+    this.order = c.bottomUpOrder();
+
+    int widest = 0;
+    for (int node = 0; node < c.getNodeCount(); ++node) {
+      widest = Math.max(widest, c.childCount(node));
+    }
+    this.counterBits = 32 - Integer.numberOfLeadingZeros(widest);
+  }
+
+  /**
+   * Evaluates 64 assignments.
+   *
+   * @param leafWords one word per leaf, indexed like {@link CompiledCircuit#getLeaf(int)}
+   * @return bit {@code j} is the value of the circuit in assignment {@code j}
+   */
+  public long evaluate(long[] leafWords) {
+    checkLeafCount(leafWords.length);
+    return new Pass().evaluate(leafWords, 0, null);
+  }
+
+  /**
+   * Evaluates {@code 64 * words} assignments, splitting the words into blocks
+   * evaluated in parallel in the current ForkJoinPool, or the common pool.
+   *
+   * @param leafWords the words of every leaf, indexed like {@link CompiledCircuit#getLeaf(int)};
+   *                  all leaves must have the same number of words
+   * @return the values of the circuit, bit {@code j} of word {@code w} for assignment {@code 64 * w + j}
+   */
+  public long[] evaluate(long[][] leafWords) {
+    checkLeafCount(leafWords.length);
+    int words = leafWords.length == 0 ? 1 : leafWords[0].length;
+    for (long[] leaf : leafWords) {
+      if (leaf.length != words) {
+        throw new IllegalArgumentException("All leaves must have the same number of words.");
+      }
+    }
+
+    long[] result = new long[words];
+    new BlockTask(leafWords, result, 0, words).invoke();
+    return result;
+  }
+
+  private void checkLeafCount(int leaves) {
+    if (leaves != c.getLeafCount()) {
+      throw new IllegalArgumentException("Expected values of " + c.getLeafCount()
+                                         + " leaves, got " + leaves + ".");
+    }
+  }
+
+  private class BlockTask extends RecursiveAction {
+    private final long[][] leafWords;
+    private final long[] result;
+    private final int from;
+    private final int to;
+
+    BlockTask(long[][] leafWords, long[] result, int from, int to) {
+      this.leafWords = leafWords;
+      this.result = result;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > BLOCK_WORDS) {
+        int mid = (from + to) >>> 1;
+        invokeAll(new BlockTask(leafWords, result, from, mid),
+                  new BlockTask(leafWords, result, mid, to));
+        return;
+      }
+      Pass pass = new Pass();
+      for (int w = from; w < to; ++w) {
+        result[w] = pass.evaluate(null, w, leafWords);
+      }
+    }
+  }
+
+  /** Scratch space of one thread, reused across words. */
+  private class Pass {
+    private final long[] values = new long[c.getNodeCount()];
+    private final long[] counter = new long[counterBits];
+
+    /** Reads leaf {@code i} from {@code word[i]}, or from {@code words[i][w]} if {@code word} is null. */
+    long evaluate(long[] word, int w, long[][] words) {
+      for (int node : order) {
+        if (c.types[node] == LEAF) {
+          int leaf = c.operands[node];
+          values[node] = word != null ? word[leaf] : words[leaf][w];
+          continue;
+        }
+
+        int start = c.childStart[node];
+        int end = c.childStart[node + 1];
+        long v;
+        switch (c.type(node)) {
+          case AND -> {
+            v = -1L;
+            for (int e = start; e < end; ++e) v &= values[c.children[e]];
+          }
+          case OR -> {
+            v = 0L;
+            for (int e = start; e < end; ++e) v |= values[c.children[e]];
+          }
+          case NOT -> v = ~values[c.children[start]];
+          case IF -> {
+            long condition = values[c.children[start]];
+            v = (condition & values[c.children[start + 1]])
+                | (~condition & values[c.children[start + 2]]);
+          }
+          case GT -> v = countGreaterThan(start, end, c.operands[node]);
+          case LT -> v = ~countAtLeast(start, end, c.operands[node]);
+          default -> throw new RuntimeException("Illegal type " + c.type(node));
+        }
+        values[node] = v;
+      }
+      return values[CompiledCircuit.ROOT];
+    }
+
+    /** @return the bits where more than {@code threshold} arguments are true */
+    private long countGreaterThan(int start, int end, int threshold) {
+      if (threshold >= end - start) return 0L;
+      return count(start, end, threshold + 1);
+    }
+
+    /** @return the bits where at least {@code threshold} arguments are true */
+    private long countAtLeast(int start, int end, int threshold) {
+      if (threshold == 0) return -1L;
+      if (threshold > end - start) return 0L;
+      return count(start, end, threshold);
+    }
+
+    /**
+     * Adds up the arguments in bit-sliced counters, plane {@code b} holding bit {@code b}
+     * of the count of every assignment, and compares the counts with {@code threshold}.
+     *
+     * @return the bits where at least {@code threshold} arguments are true,
+     *         for {@code 0 < threshold <= end - start}
+     */
+    private long count(int start, int end, int threshold) {
+      int bits = 32 - Integer.numberOfLeadingZeros(end - start);
+      for (int b = 0; b < bits; ++b) {
+        counter[b] = 0L;
+      }
+      for (int e = start; e < end; ++e) {
+        long carry = values[c.children[e]];
+        for (int b = 0; b < bits && carry != 0; ++b) {
+          long next = counter[b] & carry;
+          counter[b] ^= carry;
+          carry = next;
+        }
+      }
+
+      // compare from the most significant plane
+      long greater = 0L;
+      long equal = -1L;
+      for (int b = bits - 1; b >= 0; --b) {
+        if ((threshold >>> b & 1) == 0) {
+          greater |= equal & counter[b];
+          equal &= ~counter[b];
+        } else {
+          equal &= counter[b];
+        }
+      }
+      return greater | equal;
+    }
+  }
+}
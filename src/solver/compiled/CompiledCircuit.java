@@ -0,0 +1,198 @@
+package solver.compiled;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.LeafNode;
+import circuit.NodeType;
+import circuit.ThresholdNode;
+
+/**
+ * A circuit flattened into primitive arrays, for circuits that are solved many times.
+ *
+ * <p>Every distinct {@code CircuitNode} becomes one node index, the root is node 0.
+ * The arguments of node {@code i} are {@code children[childStart[i] .. childStart[i + 1])},
+ * an index into {@code children} identifies an edge. The parents of a node are listed
+ * the same way, as the edges pointing to it.
+ */
+public final class CompiledCircuit {
+  static final int ROOT = 0;
+
+  // largest argument count the solver's per-node state can count
+  static final int MAX_ARITY = (1 << 28) - 1;
+
+  private static final NodeType[] TYPES = NodeType.values();
+
+  // NodeType ordinal per node
+  final byte[] types;
+  // threshold of GT and LT nodes, index into leaves of LEAF nodes
+  final int[] operands;
+
+  final int[] childStart;
+  final int[] children;
+  // node whose argument list contains the edge
+  final int[] edgeOwner;
+
+  final int[] parentStart;
+  final int[] parentEdges;
+  final int[] parentCounts;
+
+  final LeafNode[] leaves;
+  final boolean[] blockingLeaves;
+  final int blockingLeafCount;
+
+  private CompiledCircuit(byte[] types, int[] operands, int[] childStart, int[] children,
+                          int[] edgeOwner, int[] parentStart, int[] parentEdges,
+                          int[] parentCounts, LeafNode[] leaves) {
+    this.types = types;
+    this.operands = operands;
+    this.childStart = childStart;
+    this.children = children;
+    this.edgeOwner = edgeOwner;
+    this.parentStart = parentStart;
+    this.parentEdges = parentEdges;
+    this.parentCounts = parentCounts;
+    this.leaves = leaves;
+
+    this.blockingLeaves = new boolean[leaves.length];
+    int blocking = 0;
+    for (int i = 0; i < leaves.length; ++i) {
+      if (leaves[i].mayBlock()) {
+        blockingLeaves[i] = true;
+        ++blocking;
+      }
+    }
+    this.blockingLeafCount = blocking;
+  }
+
+  /**
+   * Flattens {@code c}. The circuit is traversed breadth first without recursion,
+   * so arbitrarily deep circuits can be compiled.
+   */
+  public static CompiledCircuit compile(Circuit c) throws InterruptedException {
+    // keyed by equality, so that equal views of one mapped node get one index
+    HashMap<CircuitNode, Integer> index = new HashMap<>();
+    List<CircuitNode> nodes = new ArrayList<>();
+    List<CircuitNode[]> args = new ArrayList<>();
+
+    index.put(c.getRoot(), ROOT);
+    nodes.add(c.getRoot());
+    int edgeCount = 0;
+    for (int i = 0; i < nodes.size(); ++i) {
+      CircuitNode[] nodeArgs = nodes.get(i).getArgs();
+      if (nodeArgs.length > MAX_ARITY) {
+        throw new IllegalArgumentException("Nodes with more than " + MAX_ARITY
+                                           + " arguments are not supported.");
+      }
+      args.add(nodeArgs);
+      edgeCount = Math.addExact(edgeCount, nodeArgs.length);
+      for (CircuitNode arg : nodeArgs) {
+        if (index.putIfAbsent(arg, nodes.size()) == null) {
+          nodes.add(arg);
+        }
+      }
+    }
+
+    int n = nodes.size();
+    byte[] types = new byte[n];
+    int[] operands = new int[n];
+    int[] childStart = new int[n + 1];
+    int[] children = new int[edgeCount];
+    int[] edgeOwner = new int[edgeCount];
+    int[] parentCounts = new int[n];
+    List<LeafNode> leaves = new ArrayList<>();
+
+    int edge = 0;
+    for (int i = 0; i < n; ++i) {
+      CircuitNode node = nodes.get(i);
+      types[i] = (byte) node.getType().ordinal();
+      switch (node.getType()) {
+        case LEAF -> {
+          operands[i] = leaves.size();
+          leaves.add((LeafNode) node);
+        }
+        case GT, LT -> operands[i] = ((ThresholdNode) node).getThreshold();
+        default -> {}
+      }
+
+      childStart[i] = edge;
+      for (CircuitNode arg : args.get(i)) {
+        int child = index.get(arg);
+        children[edge] = child;
+        edgeOwner[edge] = i;
+        ++parentCounts[child];
+        ++edge;
+      }
+    }
+    childStart[n] = edge;
+
+    int[] parentStart = new int[n + 1];
+    for (int i = 0; i < n; ++i) {
+      parentStart[i + 1] = parentStart[i] + parentCounts[i];
+    }
+    int[] parentEdges = new int[edgeCount];
+    int[] filled = parentStart.clone();
+    for (int e = 0; e < edgeCount; ++e) {
+      parentEdges[filled[children[e]]++] = e;
+    }
+
+    return new CompiledCircuit(types, operands, childStart, children, edgeOwner,
+                               parentStart, parentEdges, parentCounts,
+                               leaves.toArray(new LeafNode[0]));
+  }
+
+  /** @return the number of distinct nodes */
+  public int getNodeCount() {
+    return types.length;
+  }
+
+  /** @return the number of arguments summed over all nodes */
+  public int getEdgeCount() {
+    return children.length;
+  }
+
+  /** @return the number of distinct leaves */
+  public int getLeafCount() {
+    return leaves.length;
+  }
+
+  /** @return the leaf with index {@code index}, leaves are numbered in the order they are reached */
+  public LeafNode getLeaf(int index) {
+    return leaves[index];
+  }
+
+  NodeType type(int node) {
+    return TYPES[types[node]];
+  }
+
+  int childCount(int node) {
+    return childStart[node + 1] - childStart[node];
+  }
+
+  /** Orders the nodes so that each comes after its arguments, without recursion. */
+  int[] bottomUpOrder() {
+    int n = getNodeCount();
+    int[] pendingArgs = new int[n];
+    int[] order = new int[n];
+    int ready = 0;
+    for (int node = 0; node < n; ++node) {
+      pendingArgs[node] = childCount(node);
+      if (pendingArgs[node] == 0) {
+        order[ready++] = node;
+      }
+    }
+    for (int next = 0; next < ready; ++next) {
+      int node = order[next];
+      for (int p = parentStart[node]; p < parentStart[node + 1]; ++p) {
+        int parent = edgeOwner[parentEdges[p]];
+        if (--pendingArgs[parent] == 0) {
+          order[ready++] = parent;
+        }
+      }
+    }
+    return order;
+  }
+}
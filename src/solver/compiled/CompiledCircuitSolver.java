@@ -0,0 +1,496 @@
+package solver.compiled;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import circuit.AsyncCircuitValue;
+import circuit.Circuit;
+import circuit.CircuitSolver;
+import circuit.LeafNode;
+import circuit.NodeType;
+import solver.CircuitOptimizer;
+import solver.LeafValueCache;
+import solver.ParallelCircuitValue;
+import solver.SolverOptions;
+
+/**
+ * Lazily evaluates {@link CompiledCircuit}s in a ForkJoinPool.
+ *
+ * <p>A solve allocates a few arrays sized by the circuit instead of objects per node.
+ * The state of every node is one {@code long}: flags in the low byte and, above them,
+ * the counts of true and false arguments (two bits per argument for IF nodes).
+ * A node determined by its arguments releases them, and a node no parent needs
+ * anymore is marked dead, so its subcircuit is skipped and its leaf interrupted.
+ */
+public class CompiledCircuitSolver implements CircuitSolver {
+  private static final long CLAIMED = 1;
+  private static final long DONE = 2;
+  private static final long TRUE = 4;
+  private static final long DEAD = 8;
+  // slot + 1 of the argument an IF node no longer needs
+  private static final int DROPPED_SHIFT = 4;
+  private static final long DROPPED_MASK = 3L << DROPPED_SHIFT;
+
+  private static final int TRUE_SHIFT = 8;
+  private static final int FALSE_SHIFT = 36;
+  private static final long COUNT_MASK = CompiledCircuit.MAX_ARITY;
+
+  private static final byte LEAF = (byte) NodeType.LEAF.ordinal();
+  private static final byte IF = (byte) NodeType.IF.ordinal();
+
+  private final AtomicBoolean stop = new AtomicBoolean(false);
+  private final Set<ParallelCircuitValue> activeValues = ConcurrentHashMap.newKeySet();
+
+  private final ForkJoinPool pool;
+  // shared across solves, null if leaf values are not cached
+  private final LeafValueCache leafCache;
+  // applied before compiling, null if circuits are compiled as they are
+  private final CircuitOptimizer optimizer;
+
+  public CompiledCircuitSolver() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  public CompiledCircuitSolver(int parallelism) {
+    this(parallelism, new SolverOptions());
+  }
+
+  /**
+   * The leaf cache and the optimizer of {@code options} apply,
+   * the evaluation never inlines subcircuits.
+   */
+  public CompiledCircuitSolver(int parallelism, SolverOptions options) {
+    this.pool = new ForkJoinPool(parallelism);
+    this.leafCache = options.getLeafCache();
+    this.optimizer = options.getOptimizer();
+  }
+
+  @Override
+  public void stop() {
+    for (ParallelCircuitValue val : activeValues) {
+      val.stop();
+    }
+    activeValues.clear();
+    stop.set(true);
+
+    pool.shutdownNow();
+  }
+
+  /**
+   * Optimizes, compiles and solves {@code c}. Circuits solved repeatedly should be compiled once
+   * and passed to {@link #solve(CompiledCircuit)}. Optimizing and compiling run in the pool,
+   * as constant folding evaluates the leaves that do not block, however long they take.
+   */
+  @Override
+  public AsyncCircuitValue solve(Circuit c) {
+    ParallelCircuitValue result = submitted();
+    if (result.isDone()) return result;
+
+    pool.execute(() -> {
+      try {
+        Circuit optimized = optimizer == null ? c : optimizer.optimize(c).getCircuit();
+        start(CompiledCircuit.compile(optimized), result);
+      } catch (InterruptedException e) {
+        result.stop();
+      }
+    });
+    return result;
+  }
+
+  public AsyncCircuitValue solve(CompiledCircuit c) {
+    ParallelCircuitValue result = submitted();
+    if (!result.isDone()) {
+      start(c, result);
+    }
+    return result;
+  }
+
+  /** @return the value of a new solve, stopped if the solver has been stopped */
+  private ParallelCircuitValue submitted() {
+    ParallelCircuitValue result = new ParallelCircuitValue();
+    activeValues.add(result);
+
+    if (stop.get()) {
+      result.stop();
+    }
+    return result;
+  }
+
+  private void start(CompiledCircuit c, ParallelCircuitValue result) {
+    Evaluation evaluation = new Evaluation(c, result);
+    // a cancelled value interrupts the running leaves, queued tasks see it done and return
+    result.onComplete((v, e) -> {
+      if (e != null) {
+        evaluation.interruptLeaves();
+        activeValues.remove(result);
+      }
+    });
+    if (result.isDone()) return;
+    evaluation.state.set(CompiledCircuit.ROOT, CLAIMED);
+    pool.submit(new ExpandTask(evaluation, CompiledCircuit.ROOT));
+  }
+
+  /** State of a single solve. */
+  private class Evaluation {
+    private final CompiledCircuit c;
+    private final ParallelCircuitValue result;
+    private final AtomicLongArray state;
+    // parent edges whose owner may still need the node, the node is dead at 0
+    private final AtomicIntegerArray liveParents;
+    // running tasks of blocking leaves, null if the circuit has none
+    private final AtomicReferenceArray<LeafTask> leafTasks;
+
+    Evaluation(CompiledCircuit c, ParallelCircuitValue result) {
+      this.c = c;
+      this.result = result;
+      this.state = new AtomicLongArray(c.getNodeCount());
+      this.liveParents = new AtomicIntegerArray(c.parentCounts);
+      this.leafTasks = c.blockingLeafCount == 0 ? null : new AtomicReferenceArray<>(c.getLeafCount());
+    }
+
+    boolean isFinished(long s) {
+      return (s & (DONE | DEAD)) != 0;
+    }
+
+    /** Only the first parent to reach a node schedules it. */
+    boolean claim(int node) {
+      long s;
+      do {
+        s = state.get(node);
+        if ((s & (CLAIMED | DONE | DEAD)) != 0) return false;
+      } while (!state.compareAndSet(node, s, s | CLAIMED));
+      return true;
+    }
+
+    /**
+     * Expands {@code node}: evaluates a non-blocking leaf, forks a blocking one,
+     * or pushes the unclaimed arguments of an inner node onto {@code pending}.
+     */
+    void expand(int node, IntStack pending, Worklists w) throws InterruptedException {
+      long s = state.get(node);
+      if (isFinished(s)) return;
+
+      if (c.types[node] == LEAF) {
+        int leaf = c.operands[node];
+        if (c.blockingLeaves[leaf]) {
+          LeafTask task = new LeafTask(this, node);
+          leafTasks.set(leaf, task);
+          task.fork();
+        } else {
+          determine(node, leafValue(leaf), w);
+        }
+        return;
+      }
+
+      Boolean trivial = decide(node, s);
+      if (trivial != null) {
+        determine(node, trivial, w);
+        return;
+      }
+
+      // pushed in reverse so that the first argument is expanded first
+      for (int e = c.childStart[node + 1] - 1; e >= c.childStart[node]; --e) {
+        long current = state.get(node);
+        if (isFinished(current)) return;
+        if (droppedEdge(node, current) == e) continue;
+
+        int child = c.children[e];
+        if (claim(child)) {
+          pending.push(child);
+        }
+      }
+    }
+
+    boolean leafValue(int leaf) throws InterruptedException {
+      LeafNode node = c.leaves[leaf];
+      return leafCache == null ? node.getValue() : leafCache.getValue(node);
+    }
+
+    /** @return the edge of the argument an IF node no longer needs, -1 if none */
+    int droppedEdge(int node, long s) {
+      int dropped = (int) ((s & DROPPED_MASK) >>> DROPPED_SHIFT);
+      return dropped == 0 ? -1 : c.childStart[node] + dropped - 1;
+    }
+
+    Boolean decide(int node, long s) {
+      NodeType type = c.type(node);
+      if (type == NodeType.IF) {
+        Boolean condition = ifArgument(s, 0);
+        Boolean first = ifArgument(s, 1);
+        Boolean second = ifArgument(s, 2);
+        if (condition != null) {
+          return condition ? first : second;
+        }
+        return first != null && first == second ? first : null;
+      }
+
+      int trueCount = (int) ((s >>> TRUE_SHIFT) & COUNT_MASK);
+      int falseCount = (int) ((s >>> FALSE_SHIFT) & COUNT_MASK);
+      int n = c.childCount(node);
+      int threshold = c.operands[node];
+      int unknown = n - trueCount - falseCount;
+
+      return switch (type) {
+        case AND -> falseCount > 0 ? Boolean.FALSE : trueCount == n ? Boolean.TRUE : null;
+        case OR -> trueCount > 0 ? Boolean.TRUE : falseCount == n ? Boolean.FALSE : null;
+        case NOT -> trueCount > 0 ? Boolean.FALSE : falseCount > 0 ? Boolean.TRUE : null;
+        case GT -> trueCount > threshold ? Boolean.TRUE
+                   : trueCount + unknown <= threshold ? Boolean.FALSE : null;
+        case LT -> trueCount >= threshold ? Boolean.FALSE
+                   : trueCount + unknown < threshold ? Boolean.TRUE : null;
+        default -> throw new RuntimeException("Illegal type " + type);
+      };
+    }
+
+    private Boolean ifArgument(long s, int slot) {
+      int bits = (int) (s >>> (TRUE_SHIFT + 2 * slot)) & 3;
+      return bits == 0 ? null : bits == 2;
+    }
+
+    /** @return the argument of an IF node that cannot affect its value, -1 if none */
+    private int droppableSlot(long s) {
+      Boolean condition = ifArgument(s, 0);
+      if (condition != null) {
+        return condition ? 2 : 1;
+      }
+      Boolean first = ifArgument(s, 1);
+      return first != null && first == ifArgument(s, 2) ? 0 : -1;
+    }
+
+    /**
+     * Counts the value of an argument of {@code node}.
+     *
+     * @return the value of {@code node} if this argument determined it, {@code null} otherwise
+     */
+    private Boolean registerChild(int node, int slot, boolean value, Worklists w) {
+      boolean isIf = c.types[node] == IF;
+      long increment = isIf ? (value ? 2L : 1L) << (TRUE_SHIFT + 2 * slot)
+                            : 1L << (value ? TRUE_SHIFT : FALSE_SHIFT);
+      while (true) {
+        long s = state.get(node);
+        if (isFinished(s)) return null;
+
+        long next = s + increment;
+        Boolean decided = decide(node, next);
+        boolean drops = false;
+        if (decided != null) {
+          next |= DONE | (decided ? TRUE : 0);
+        } else if (isIf && (next & DROPPED_MASK) == 0) {
+          int dropped = droppableSlot(next);
+          if (dropped >= 0) {
+            next |= (long) (dropped + 1) << DROPPED_SHIFT;
+            drops = true;
+          }
+        }
+
+        if (state.compareAndSet(node, s, next)) {
+          if (drops) {
+            release(c.children[droppedEdge(node, next)], w);
+          }
+          return decided;
+        }
+      }
+    }
+
+    /** Determines a node regardless of its arguments (a leaf or a node without arguments). */
+    void determine(int node, boolean value, Worklists w) {
+      long s;
+      do {
+        s = state.get(node);
+        if (isFinished(s)) return;
+      } while (!state.compareAndSet(node, s, s | DONE | (value ? TRUE : 0)));
+      propagateUp(node, value, w);
+    }
+
+    /**
+     * Propagates the value of a node that has just been determined to all of its parents,
+     * and further up for every parent that becomes determined.
+     */
+    private void propagateUp(int node, boolean value, Worklists w) {
+      IntStack determined = w.determined();
+      determined.push(node << 1 | (value ? 1 : 0));
+
+      while (!determined.isEmpty()) {
+        int top = determined.pop();
+        int temp = top >>> 1;
+        boolean tempValue = (top & 1) != 0;
+
+        if (temp == CompiledCircuit.ROOT) {
+          if (!stop.get()) {
+            result.setValue(tempValue);
+            activeValues.remove(result);
+          }
+          // the rest of the circuit is abandoned without releasing it node by node,
+          // the tasks still running see the value done
+          interruptLeaves();
+          continue;
+        }
+
+        for (int p = c.parentStart[temp]; p < c.parentStart[temp + 1]; ++p) {
+          int edge = c.parentEdges[p];
+          int parent = c.edgeOwner[edge];
+          Boolean parentValue = registerChild(parent, edge - c.childStart[parent], tempValue, w);
+          if (parentValue != null) {
+            determined.push(parent << 1 | (parentValue ? 1 : 0));
+          }
+        }
+        releaseChildren(temp, null, w);
+      }
+    }
+
+    /**
+     * Called once per edge whose owner no longer needs the argument.
+     * A node that loses its last parent is marked dead and releases its own arguments.
+     */
+    private void release(int node, Worklists w) {
+      if (liveParents.decrementAndGet(node) != 0) return;
+
+      IntStack dead = w.dead();
+      dead.push(node);
+      while (!dead.isEmpty()) {
+        int temp = dead.pop();
+        long s;
+        do {
+          s = state.get(temp);
+          if (isFinished(s)) break;
+        } while (!state.compareAndSet(temp, s, s | DEAD));
+        if (isFinished(s)) continue;
+
+        if (c.types[temp] == LEAF) {
+          interruptLeaf(c.operands[temp]);
+          continue;
+        }
+        // the arguments of a node never reached have not been reached through it either.
+        // Not walking them keeps the cost proportional to the expanded part of the circuit,
+        // at the price of evaluating arguments it shares with needed nodes for longer.
+        if ((s & CLAIMED) != 0) {
+          releaseChildren(temp, dead, w);
+        }
+      }
+    }
+
+    /**
+     * Releases the arguments of a finished node. Arguments that lose their last parent
+     * are pushed onto {@code dead} if given, otherwise released right away.
+     */
+    private void releaseChildren(int node, IntStack dead, Worklists w) {
+      int dropped = droppedEdge(node, state.get(node));
+      for (int e = c.childStart[node]; e < c.childStart[node + 1]; ++e) {
+        if (e == dropped) continue;
+        int child = c.children[e];
+        if (dead == null) {
+          release(child, w);
+        } else if (liveParents.decrementAndGet(child) == 0) {
+          dead.push(child);
+        }
+      }
+    }
+
+    private void interruptLeaf(int leaf) {
+      if (leafTasks == null) return;
+      LeafTask task = leafTasks.get(leaf);
+      if (task != null) {
+        task.interruptRunner();
+      }
+    }
+
+    private void interruptLeaves() {
+      if (leafTasks == null) return;
+      for (int leaf = 0; leaf < leafTasks.length(); ++leaf) {
+        interruptLeaf(leaf);
+      }
+    }
+  }
+
+  /** A task of a solve, with the worklists of propagation reused across its calls. */
+  private abstract static class Worklists extends RecursiveAction {
+    private IntStack determined;
+    private IntStack dead;
+
+    IntStack determined() {
+      if (determined == null) determined = new IntStack();
+      return determined;
+    }
+
+    IntStack dead() {
+      if (dead == null) dead = new IntStack();
+      return dead;
+    }
+  }
+
+  /**
+   * Expands a part of the circuit depth first. Whenever the pool runs out of queued work,
+   * the shallowest pending node is handed to a new task so that idle workers can steal it.
+   */
+  private static class ExpandTask extends Worklists {
+    private final Evaluation evaluation;
+    private final IntStack pending = new IntStack();
+
+    ExpandTask(Evaluation evaluation, int node) {
+      this.evaluation = evaluation;
+      pending.push(node);
+    }
+
+    @Override
+    protected void compute() {
+      try {
+        while (!pending.isEmpty()) {
+          if (evaluation.result.isDone()) return;
+          if (pending.size() > 1 && getSurplusQueuedTaskCount() <= 0) {
+            new ExpandTask(evaluation, pending.pollBottom()).fork();
+          }
+          evaluation.expand(pending.pop(), pending, this);
+        }
+      } catch (InterruptedException e) {
+        // the solver has been stopped
+      }
+    }
+  }
+
+  /** Evaluates a leaf that may block. */
+  private static class LeafTask extends Worklists {
+    private final Evaluation evaluation;
+    private final int node;
+
+    // guarded by this, so that a dead leaf never interrupts a task it no longer runs
+    private Thread runner;
+
+    LeafTask(Evaluation evaluation, int node) {
+      this.evaluation = evaluation;
+      this.node = node;
+    }
+
+    synchronized void interruptRunner() {
+      if (runner != null) {
+        runner.interrupt();
+      }
+    }
+
+    @Override
+    protected void compute() {
+      synchronized (this) {
+        if (evaluation.isFinished(evaluation.state.get(node)) || evaluation.result.isDone()) return;
+        runner = Thread.currentThread();
+      }
+
+      boolean value;
+      try {
+        value = evaluation.leafValue(evaluation.c.operands[node]);
+      } catch (InterruptedException e) {
+        return;
+      } finally {
+        synchronized (this) {
+          runner = null;
+        }
+        Thread.interrupted();
+      }
+      evaluation.determine(node, value, this);
+    }
+  }
+}
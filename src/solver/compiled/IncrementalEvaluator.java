@@ -0,0 +1,190 @@
+package solver.compiled;
+
+import java.util.Arrays;
+
+import circuit.NodeType;
+
+/**
+ * Keeps the value of every node of a compiled circuit, and updates them when leaves change.
+ *
+ * <p>After a full evaluation every node holds its value and every AND, OR, GT and LT node the
+ * number of its true arguments. A changed leaf adjusts the counts of its parents, and only
+ * parents whose value changes pass the change on, so an update costs time proportional to the
+ * nodes whose value or count it changes rather than to the size of the circuit. Leaves are
+ * read once by {@link #evaluate()}, afterwards their values are supplied by the caller.
+ *
+ * <p>Not thread-safe.
+ */
+public class IncrementalEvaluator {
+  private static final byte LEAF = (byte) NodeType.LEAF.ordinal();
+
+  private final CompiledCircuit c;
+  // node of every leaf index
+  private final int[] leafNodes;
+  // every node after all of its arguments
+  private final int[] order;
+
+  private final boolean[] values;
+  private final int[] trueCounts;
+  // nodes whose counts changed and whose value has not been recomputed since
+  private final boolean[] dirty;
+  private final IntStack pending = new IntStack();
+  private boolean evaluated = false;
+
+  public IncrementalEvaluator(CompiledCircuit c) {
+    this.c = c;
+    this.order = c.bottomUpOrder();
+    int n = c.getNodeCount();
+    this.values = new boolean[n];
+    this.trueCounts = new int[n];
+    this.dirty = new boolean[n];
+    this.leafNodes = new int[c.getLeafCount()];
+    for (int node = 0; node < n; ++node) {
+      if (c.types[node] == LEAF) {
+        leafNodes[c.operands[node]] = node;
+      }
+    }
+  }
+
+  /**
+   * Evaluates the whole circuit, calling every leaf once in the calling thread.
+   *
+   * @return the value of the root
+   */
+  public boolean evaluate() throws InterruptedException {
+    boolean[] leafValues = new boolean[c.getLeafCount()];
+    for (int leaf = 0; leaf < leafValues.length; ++leaf) {
+      leafValues[leaf] = c.leaves[leaf].getValue();
+    }
+    return evaluate(leafValues);
+  }
+
+  /**
+   * Evaluates the whole circuit for the given leaf values.
+   *
+   * @param leafValues one value per leaf, indexed like {@link CompiledCircuit#getLeaf(int)}
+   * @return the value of the root
+   */
+  public boolean evaluate(boolean[] leafValues) {
+    if (leafValues.length != c.getLeafCount()) {
+      throw new IllegalArgumentException("Expected values of " + c.getLeafCount()
+                                         + " leaves, got " + leafValues.length + ".");
+    }
+    Arrays.fill(trueCounts, 0);
+    for (int node : order) {
+      if (c.types[node] == LEAF) {
+        values[node] = leafValues[c.operands[node]];
+      } else {
+        for (int e = c.childStart[node]; e < c.childStart[node + 1]; ++e) {
+          if (values[c.children[e]]) ++trueCounts[node];
+        }
+        values[node] = compute(node);
+      }
+    }
+    evaluated = true;
+    return getValue();
+  }
+
+  /**
+   * Sets the value of a leaf and updates the nodes depending on it.
+   *
+   * @param leaf index of the leaf, as in {@link CompiledCircuit#getLeaf(int)}
+   * @return the value of the root
+   * @throws IllegalStateException if the circuit has not been evaluated
+   */
+  public boolean setLeafValue(int leaf, boolean value) {
+    checkEvaluated();
+    int node = leafNodes[leaf];
+    if (values[node] != value) {
+      changed(node);
+      propagate();
+    }
+    return getValue();
+  }
+
+  /**
+   * Sets the values of several leaves and updates the nodes depending on them once,
+   * after all leaves are set.
+   *
+   * @param leaves indices of the leaves, as in {@link CompiledCircuit#getLeaf(int)}
+   * @param leafValues the new value of every leaf in {@code leaves}
+   * @return the value of the root
+   * @throws IllegalStateException if the circuit has not been evaluated
+   */
+  public boolean setLeafValues(int[] leaves, boolean[] leafValues) {
+    if (leaves.length != leafValues.length) {
+      throw new IllegalArgumentException("Expected " + leaves.length + " values, got "
+                                         + leafValues.length + ".");
+    }
+    checkEvaluated();
+    for (int i = 0; i < leaves.length; ++i) {
+      int node = leafNodes[leaves[i]];
+      if (values[node] != leafValues[i]) {
+        changed(node);
+      }
+    }
+    propagate();
+    return getValue();
+  }
+
+  /**
+   * Reads a leaf that is known to have changed, and updates the nodes depending on it.
+   *
+   * @return the value of the root
+   * @throws IllegalStateException if the circuit has not been evaluated
+   */
+  public boolean leafChanged(int leaf) throws InterruptedException {
+    return setLeafValue(leaf, c.leaves[leaf].getValue());
+  }
+
+  /** @return the value of the root after the last evaluation or update */
+  public boolean getValue() {
+    checkEvaluated();
+    return values[CompiledCircuit.ROOT];
+  }
+
+  private void checkEvaluated() {
+    if (!evaluated) {
+      throw new IllegalStateException("The circuit has not been evaluated.");
+    }
+  }
+
+  /** Flips the value of {@code node} and adjusts the counts of its parents. */
+  private void changed(int node) {
+    boolean value = !values[node];
+    values[node] = value;
+    for (int p = c.parentStart[node]; p < c.parentStart[node + 1]; ++p) {
+      int parent = c.edgeOwner[c.parentEdges[p]];
+      trueCounts[parent] += value ? 1 : -1;
+      if (!dirty[parent]) {
+        dirty[parent] = true;
+        pending.push(parent);
+      }
+    }
+  }
+
+  /** Recomputes the dirty nodes until no value changes. */
+  private void propagate() {
+    while (!pending.isEmpty()) {
+      int node = pending.pop();
+      dirty[node] = false;
+      if (compute(node) != values[node]) {
+        changed(node);
+      }
+    }
+  }
+
+  private boolean compute(int node) {
+    int start = c.childStart[node];
+    int trueCount = trueCounts[node];
+    return switch (c.type(node)) {
+      case AND -> trueCount == c.childCount(node);
+      case OR -> trueCount > 0;
+      case NOT -> !values[c.children[start]];
+      case IF -> values[c.children[start]] ? values[c.children[start + 1]] : values[c.children[start + 2]];
+      case GT -> trueCount > c.operands[node];
+      case LT -> trueCount < c.operands[node];
+      default -> throw new RuntimeException("Illegal type " + c.type(node));
+    };
+  }
+}
@@ -0,0 +1,48 @@
+package solver.compiled;
+
+import java.util.Arrays;
+
+/** A growable stack of ints that can also be polled from the bottom. */
+final class IntStack {
+  private int[] elements;
+  private int bottom = 0;
+  private int top = 0;
+
+  IntStack() {
+    this(16);
+  }
+
+  IntStack(int capacity) {
+    elements = new int[capacity];
+  }
+
+  boolean isEmpty() {
+    return top == bottom;
+  }
+
+  int size() {
+    return top - bottom;
+  }
+
+  void push(int value) {
+    if (top == elements.length) {
+      if (bottom > elements.length / 2) {
+        System.arraycopy(elements, bottom, elements, 0, top - bottom);
+        top -= bottom;
+        bottom = 0;
+      } else {
+        elements = Arrays.copyOf(elements, 2 * elements.length);
+      }
+    }
+    elements[top++] = value;
+  }
+
+  int pop() {
+    return elements[--top];
+  }
+
+  /** Removes the element pushed the earliest. */
+  int pollBottom() {
+    return elements[bottom++];
+  }
+}
@@ -6,24 +6,22 @@ import circuit.ThresholdNode;
 public class ParallelGTNode extends ParallelNode {
   final int threshold;
 
-  public ParallelGTNode(CircuitNode node, ParallelNode parent) {
-    super(node, parent);
+  public ParallelGTNode(CircuitNode node) {
+    super(node);
     threshold = ((ThresholdNode) node).getThreshold();
   }
   
   @Override
-  public synchronized Boolean isDetermined() throws InterruptedException {
-    if (alreadyDetermined != null) return alreadyDetermined;
-
+  protected Boolean decide(long state) throws InterruptedException {
     // GT node is true if trueCount > threshold
     // Since trueCount + falseCount = childCount
     // it follows that if
     // childCount - false_count <= threshold then it is false 
     
-    if (trueCount > threshold) alreadyDetermined = true;
-    if (getChildCount() - falseCount <= threshold) alreadyDetermined = false;
+    if (trueCount(state) > threshold) return true;
+    if (getChildCount() - falseCount(state) <= threshold) return false;
     
-    return alreadyDetermined;
+    return null;
   }
 
   @Override
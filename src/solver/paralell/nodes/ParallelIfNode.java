@@ -2,44 +2,63 @@ package solver.paralell.nodes;
 
 import circuit.CircuitNode;
 
+/**
+ * The state of an IF node holds two bits per child instead of counts:
+ * 0 if the child is unknown, 1 if it is false and 2 if it is true.
+ * Every child index is registered at most once, so adding the bits
+ * of a child is enough to set them.
+ */
 public class ParallelIfNode extends ParallelNode {
-  final Boolean[] childrenValues = {null, null, null};
+  private static final int CONDITION = 0;
+  private static final int FIRST_BRANCH = 1;
+  private static final int SECOND_BRANCH = 2;
 
-  public ParallelIfNode(CircuitNode node, ParallelNode parent) {
-    super(node, parent);
+  public ParallelIfNode(CircuitNode node) {
+    super(node);
+  }
+
+  private static Boolean childValue(long state, int childIndex) {
+    int bits = (int) (state >>> (2 * childIndex)) & 3;
+    return bits == 0 ? null : bits == 2;
   }
   
   @Override
-  public synchronized String toString() {
-    return "IF " + childrenValues[0] + " " + childrenValues[1] + " " + childrenValues[2];
+  public String toString() {
+    long s = state;
+    return "IF " + childValue(s, CONDITION) + " " + childValue(s, FIRST_BRANCH) + " " + childValue(s, SECOND_BRANCH);
   }
 
   @Override
-  public synchronized Boolean registerChild(boolean childValue, ParallelNode child) throws InterruptedException {
-    if (alreadyDetermined != null) {
+  public Boolean registerChild(boolean childValue, int childIndex) throws InterruptedException {
+    // note that childIndex < 3.
+    long increment = (childValue ? 2L : 1L) << (2 * childIndex);
+    long previous = (long) STATE.getAndAdd(this, increment);
+
+    if (decide(previous) != null) {
       return null;
     }
-    getChildren();
-    // note that args.length == 3.
-    for (int i = 0; i < args.length; ++i) {
-      if (args[i] == child.node) {
-        childrenValues[i] = childValue;
-        return isDetermined();
-      }
-    }
-    return null;
+    return decide(previous + increment);
   }
 
   @Override
-  public Boolean isDetermined() throws InterruptedException {
-    if (childrenValues[0] != null) {
-      alreadyDetermined = childrenValues[0] ? childrenValues[1] 
-                                            : childrenValues[2];
-    } else if (childrenValues[1] != null && childrenValues[2] != null 
-              && childrenValues[1] == childrenValues[2]) {
-        alreadyDetermined = childrenValues[1];
+  protected Boolean decide(long state) {
+    Boolean condition = childValue(state, CONDITION);
+    Boolean first = childValue(state, FIRST_BRANCH);
+    Boolean second = childValue(state, SECOND_BRANCH);
+
+    if (condition != null) {
+      return condition ? first : second;
+    } else if (first != null && second != null && first == second) {
+      return first;
     }
-    return alreadyDetermined;
+    return null;
+  }
+
+  /** @return the index of the branch chosen by the condition, -1 if the condition is unknown */
+  public int chosenBranch() {
+    Boolean condition = childValue(state, CONDITION);
+    if (condition == null) return -1;
+    return condition ? FIRST_BRANCH : SECOND_BRANCH;
   }
 
   /**
@@ -47,14 +66,16 @@ public class ParallelIfNode extends ParallelNode {
    * @return the index of the branch that can be cancelled. If neither returns -1.
    */
   public int canBranchBeCancelled() {
-    if (childrenValues[0] != null) {
-      return childrenValues[0] ? 2 : 1;
-    } else if (childrenValues[1] != null && childrenValues[2] != null 
-              && childrenValues[1] == childrenValues[2]) {
-      return 0;
+    long s = state;
+    Boolean condition = childValue(s, CONDITION);
+    Boolean first = childValue(s, FIRST_BRANCH);
+    Boolean second = childValue(s, SECOND_BRANCH);
+
+    if (condition != null) {
+      return condition ? SECOND_BRANCH : FIRST_BRANCH;
+    } else if (first != null && second != null && first == second) {
+      return CONDITION;
     }
     return -1;
   }
-
-
 }
@@ -6,24 +6,22 @@ import circuit.ThresholdNode;
 public class ParallelLTNode extends ParallelNode {
   final int threshold;
 
-  public ParallelLTNode(CircuitNode node, ParallelNode parent) {
-    super(node, parent);
+  public ParallelLTNode(CircuitNode node) {
+    super(node);
     threshold = ((ThresholdNode) node).getThreshold();
   }
   
   @Override
-  public synchronized Boolean isDetermined() throws InterruptedException {
-    if (alreadyDetermined != null) return alreadyDetermined;   
-
+  protected Boolean decide(long state) throws InterruptedException {
     // LT node is false if trueCount >= threshold
     // Since trueCount + falseCount = childCount
     // it follows that if
     // falseCount > childCount - threshold then it is true
     
-    if (falseCount > getChildCount() - threshold) alreadyDetermined = true;
-    if (trueCount >= threshold) alreadyDetermined = false;
+    if (falseCount(state) > getChildCount() - threshold) return true;
+    if (trueCount(state) >= threshold) return false;
 
-    return alreadyDetermined;
+    return null;
   }
 
   @Override
@@ -2,20 +2,44 @@ package solver.paralell.nodes;
 
 import circuit.CircuitNode;
 import circuit.LeafNode;
+import solver.LeafLatencyModel;
+import solver.LeafValueCache;
 
+/**
+ * The state of a leaf is 0 until its value is known, then 1 for false and 2 for true.
+ */
 public class ParallelLeafNode extends ParallelNode {
-  
-  public ParallelLeafNode(CircuitNode node, ParallelNode parent) {
-    super(node, parent);
+  // null if leaf values are not cached
+  private final LeafValueCache cache;
+  // null if latencies are not recorded
+  private final LeafLatencyModel latency;
+
+  public ParallelLeafNode(CircuitNode node, LeafValueCache cache, LeafLatencyModel latency) {
+    super(node);
+    this.cache = cache;
+    this.latency = latency;
   }
 
+  /**
+   * The leaf is evaluated only by its own task. No monitor is held while
+   * {@code getValue()} blocks, as that would pin the carrier of a virtual thread.
+   */
   @Override
-  public synchronized Boolean isDetermined() throws InterruptedException {
-    if (alreadyDetermined != null) return alreadyDetermined;
+  public Boolean isDetermined() throws InterruptedException {
+    Boolean known = decide(state);
+    if (known != null) return known;
+
+    LeafNode leaf = (LeafNode) node;
+    boolean value = latency != null ? latency.evaluate(leaf, cache)
+                    : cache == null ? leaf.getValue() : cache.getValue(leaf);
 
-    alreadyDetermined = ((LeafNode) node).getValue();
+    STATE.compareAndSet(this, 0L, value ? 2L : 1L);
+    return decide(state);
+  }
 
-    return alreadyDetermined;
+  @Override
+  protected Boolean decide(long state) {
+    return state == 0 ? null : state == 2;
   }
 
   @Override
@@ -24,7 +48,7 @@ public class ParallelLeafNode extends ParallelNode {
   }
 
   @Override
-  public synchronized Boolean registerChild(boolean childValue, ParallelNode child) throws InterruptedException {
+  public Boolean registerChild(boolean childValue, int childIndex) throws InterruptedException {
     return null;
   }
 
@@ -34,7 +58,7 @@ public class ParallelLeafNode extends ParallelNode {
   }
 
   @Override
-  public synchronized String toString() {
-    return "LEAF: " + alreadyDetermined;
+  public String toString() {
+    return "LEAF: " + decide(state);
   }
 }
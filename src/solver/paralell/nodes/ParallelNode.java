@@ -1,50 +1,92 @@
 package solver.paralell.nodes;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 import circuit.CircuitNode;
 import circuit.NodeType;
-
+import solver.LeafLatencyModel;
+import solver.LeafValueCache;
+
+/**
+ * Evaluation state of a circuit node.
+ *
+ * <p>The state is a single {@code long} updated atomically with {@code getAndAdd}:
+ * the number of {@code true} children in the lowest 31 bits and the number of {@code false}
+ * children in the next 31 bits. Whether the node is determined is a function of the counts,
+ * monotonic in both, so the registration that determines the node is the only one whose
+ * update crosses from an undetermined to a determined state. Registration therefore neither
+ * locks nor retries nor allocates.
+ */
 public class ParallelNode {
   protected CircuitNode node;
-  // reference to the parent of the node
-  protected ParallelNode parent;
   protected CircuitNode[] args;
 
-  protected volatile int trueCount = 0;
-  protected volatile int falseCount = 0;
-  protected Boolean alreadyDetermined = null;
+  protected volatile long state = 0;
+
+  protected static final VarHandle STATE;
+  static {
+    try {
+      STATE = MethodHandles.lookup().findVarHandle(ParallelNode.class, "state", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private static final int COUNT_BITS = 31;
+  private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+  private static final long ONE_TRUE = 1L;
+  private static final long ONE_FALSE = 1L << COUNT_BITS;
+
+  protected static int trueCount(long state) {
+    return (int) (state & COUNT_MASK);
+  }
+
+  protected static int falseCount(long state) {
+    return (int) ((state >>> COUNT_BITS) & COUNT_MASK);
+  }
 
   @Override
-  public synchronized String toString() {
-    return node.getType() + "  T:" + trueCount + " F: " + falseCount;
+  public String toString() {
+    long s = state;
+    return node.getType() + "  T:" + trueCount(s) + " F: " + falseCount(s);
+  }
+
+  /**
+   * @param leafCache cache for the values of leaves, {@code null} if values are not cached
+   */
+  public static ParallelNode mk(CircuitNode node, LeafValueCache leafCache) {
+    return mk(node, leafCache, null);
   }
 
-  public static ParallelNode mk(CircuitNode node, ParallelNode parent) {
+  /**
+   * @param leafCache cache for the values of leaves, {@code null} if values are not cached
+   * @param latency   records the latencies of leaves, {@code null} if they are not recorded
+   */
+  public static ParallelNode mk(CircuitNode node, LeafValueCache leafCache, LeafLatencyModel latency) {
     return switch (node.getType()) {
-      case LEAF -> new ParallelLeafNode(node, parent);
-      case IF -> new ParallelIfNode(node, parent);
-      case GT -> new ParallelGTNode(node, parent);
-      case LT -> new ParallelLTNode(node, parent);
-      case AND, OR, NOT -> new ParallelNode(node, parent);
+      case LEAF -> new ParallelLeafNode(node, leafCache, latency);
+      case IF -> new ParallelIfNode(node);
+      case GT -> new ParallelGTNode(node);
+      case LT -> new ParallelLTNode(node);
+      case AND, OR, NOT -> new ParallelNode(node);
       default -> throw new RuntimeException("Illegal type " + node.getType());
     };
   }
 
-  public final ParallelNode getParentNode() {
-    return parent;
-  }
-
-  protected ParallelNode(CircuitNode node, ParallelNode parent) {
+  protected ParallelNode(CircuitNode node) {
     this.node = node;
-    this.parent = parent;
   }
 
-  public Boolean isMyParentDetermined() {
-    if (parent == null) return null;
-    return parent.alreadyDetermined;
+  /**
+   * @return the underlying circuit node
+   */
+  public final CircuitNode getNode() {
+    return node;
   }
 
-  public synchronized Boolean wasAlreadyDetermined() {
-    return alreadyDetermined;
+  public Boolean wasAlreadyDetermined() throws InterruptedException {
+    return decide(state);
   }
 
   /**
@@ -55,23 +97,23 @@ public class ParallelNode {
    * given child value. If this update causes the node to become determined, the new determination 
    * state is returned. If the node remains undetermined after the update, {@code null} is returned.
    * 
+   * <p>A child that occurs several times among the arguments is registered once per occurrence.
+   * 
    * @param childValue the value of the child node ({@code true} or {@code false}).
-   * @param child the child node being registered.
+   * @param childIndex the index of the child among the arguments of this node.
    * @return the determination state of the node if it becomes determined as a result 
    *         of this call, or {@code null} if it is already determined or remains undetermined.
    * @throws InterruptedException if {@code isDetermined} throws this exception during evaluation.
    */
-  public synchronized Boolean registerChild(boolean childValue, ParallelNode child) throws InterruptedException {
+  public Boolean registerChild(boolean childValue, int childIndex) throws InterruptedException {
+    long increment = childValue ? ONE_TRUE : ONE_FALSE;
+    long previous = (long) STATE.getAndAdd(this, increment);
+
     // if I am determined, I do not want to register any children any more.
-    if (alreadyDetermined != null) {
+    if (decide(previous) != null) {
       return null;
     }
-    if (childValue) {
-      ++trueCount;
-    } else {
-      ++falseCount;
-    }
-    return isDetermined();
+    return decide(previous + increment);
   }
 
   protected int getChildCount() throws InterruptedException {
@@ -86,17 +128,23 @@ public class ParallelNode {
    * @return the boolean value if the node was determined, null if its value is still undetermined
    * @throws InterruptedException if during the evaluation of the node, the node has thrown InterruptedException
    */
-  public synchronized Boolean isDetermined() throws InterruptedException {
-    if (alreadyDetermined != null) return alreadyDetermined;
+  public Boolean isDetermined() throws InterruptedException {
+    return decide(state);
+  }
 
-    alreadyDetermined = switch (node.getType()) {
-        case AND -> isDeterminedAND();
-        case OR -> isDeterminedOR();
-        case NOT -> isDeterminedNOT();
+  /**
+   * Must be monotonic: once a state is determined, every state with
+   * greater or equal counts is determined to the same value.
+   *
+   * @return the value of the node in the given state, null if it is undetermined
+   */
+  protected Boolean decide(long state) throws InterruptedException {
+    return switch (node.getType()) {
+        case AND -> isDeterminedAND(trueCount(state), falseCount(state));
+        case OR -> isDeterminedOR(trueCount(state), falseCount(state));
+        case NOT -> isDeterminedNOT(trueCount(state), falseCount(state));
         default -> throw new RuntimeException("Illegal type " + node.getType());  // Handle any illegal types
     };
-
-    return alreadyDetermined;
   }
 
   /**
@@ -130,21 +178,21 @@ public class ParallelNode {
     return this.args;
   }
 
-  private Boolean isDeterminedAND() throws InterruptedException {
+  private Boolean isDeterminedAND(int trueCount, int falseCount) throws InterruptedException {
     if (falseCount > 0) return false;
     if (trueCount == getChildCount()) return true;
 
     return null;
   }
 
-  private Boolean isDeterminedOR() throws InterruptedException {
+  private Boolean isDeterminedOR(int trueCount, int falseCount) throws InterruptedException {
     if (trueCount > 0) return true;
     if (falseCount == getChildCount()) return false;
 
     return null;
   }
 
-  private Boolean isDeterminedNOT() {
+  private Boolean isDeterminedNOT(int trueCount, int falseCount) {
     if (trueCount == 1) {
       return false;
     }
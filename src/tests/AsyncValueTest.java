@@ -0,0 +1,89 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import circuit.AsyncCircuitValue;
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.NodeType;
+import solver.VirtualThreadCircuitSolver;
+
+public class AsyncValueTest {
+  VirtualThreadCircuitSolver pSolver;
+
+  @BeforeEach
+  void initialize() {
+    pSolver = new VirtualThreadCircuitSolver(2);
+  }
+
+  @AfterEach
+  void stop() {
+    pSolver.stop();
+  }
+
+  @Test
+  void timedGet() throws Exception {
+    AsyncCircuitValue val = pSolver.solve(new Circuit(CircuitNode.mk(true, Duration.ofMillis(300))));
+
+    assertThrows(TimeoutException.class, () -> val.getValue(Duration.ofMillis(10)));
+    assertEquals(true, val.getValue(Duration.ofSeconds(5)));
+  }
+
+  @Test
+  void manySolvesWithoutWaitingThreads() throws InterruptedException {
+    int solves = 10_000;
+    CountDownLatch done = new CountDownLatch(solves);
+    AtomicInteger trueCount = new AtomicInteger();
+
+    for (int i = 0; i < solves; ++i) {
+      boolean leafValue = i % 2 == 0;
+      pSolver.solve(new Circuit(CircuitNode.mk(NodeType.NOT, CircuitNode.mk(leafValue, Duration.ofMillis(200)))))
+             .onComplete((value, error) -> {
+               if (error == null && value) trueCount.incrementAndGet();
+               done.countDown();
+             });
+    }
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(solves / 2, trueCount.get());
+  }
+
+  @Test
+  void completionStage() throws Exception {
+    AsyncCircuitValue val = pSolver.solve(new Circuit(CircuitNode.mk(false, Duration.ofMillis(50))));
+
+    String s = val.toCompletionStage().thenApply(v -> v ? "T" : "F").toCompletableFuture().get(5, TimeUnit.SECONDS);
+    assertEquals("F", s);
+  }
+
+  @Test
+  void stopCompletesExceptionally() throws InterruptedException {
+    AsyncCircuitValue val = pSolver.solve(new Circuit(CircuitNode.mk(true, Duration.ofSeconds(10))));
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    CountDownLatch done = new CountDownLatch(1);
+    val.onComplete((value, e) -> {
+      error.set(e);
+      done.countDown();
+    });
+
+    pSolver.stop();
+
+    assertTrue(done.await(1, TimeUnit.SECONDS));
+    assertTrue(error.get() instanceof CancellationException);
+    assertThrows(InterruptedException.class, () -> val.getValue());
+  }
+}
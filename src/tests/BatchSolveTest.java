@@ -0,0 +1,92 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.CircuitSolver;
+import demo.SequentialSolver;
+import solver.BatchCircuitValue;
+import solver.ParallelCircuitSolver;
+import tests.CircuitGenerator.BalancedRandomCircuitGenerator;
+import tests.CircuitGenerator.DeepRandomCircuitGenerator;
+import tests.CircuitGenerator.RandomCircuitGenerator;
+
+public class BatchSolveTest {
+  ParallelCircuitSolver pSolver;
+
+  @BeforeEach
+  void initialize() {
+    pSolver = new ParallelCircuitSolver(4);
+  }
+
+  @AfterEach
+  void stop() {
+    pSolver.stop();
+  }
+
+  @Test
+  void agreesWithSequential() throws InterruptedException {
+    CircuitSolver sSolver = new SequentialSolver();
+    RandomCircuitGenerator[] generators = {
+      new DeepRandomCircuitGenerator(1_000, new Random(1)),
+      new BalancedRandomCircuitGenerator(8, new Random(2))
+    };
+
+    Circuit[] circuits = new Circuit[1_000];
+    for (int i = 0; i < circuits.length; ++i) {
+      circuits[i] = generators[i % generators.length].generateCircuit().getCircuit();
+    }
+
+    BatchCircuitValue batch = pSolver.solveAll(circuits);
+    batch.awaitAll();
+
+    assertTrue(batch.isDone());
+    assertEquals(circuits.length, batch.size());
+    for (int i = 0; i < circuits.length; ++i) {
+      assertEquals(TestUtils.getVal(sSolver.solve(circuits[i])), TestUtils.getVal(batch.get(i)), "Circuit " + i);
+    }
+  }
+
+  @Test
+  void emptyBatch() throws InterruptedException {
+    BatchCircuitValue batch = pSolver.solveAll(List.of());
+    assertTrue(batch.awaitAll(Duration.ZERO));
+  }
+
+  @Test
+  void timedAwait() throws InterruptedException {
+    BatchCircuitValue batch = pSolver.solveAll(List.of(new Circuit(CircuitNode.mk(true)),
+                                                       new Circuit(CircuitNode.mk(false, Duration.ofMillis(300)))));
+    assertFalse(batch.awaitAll(Duration.ofMillis(10)));
+    assertTrue(batch.awaitAll(Duration.ofSeconds(5)));
+    assertEquals(true, TestUtils.getVal(batch.get(0)));
+    assertEquals(false, TestUtils.getVal(batch.get(1)));
+  }
+
+  @Test
+  void stopStopsBatch() throws InterruptedException {
+    BatchCircuitValue batch = pSolver.solveAll(List.of(new Circuit(CircuitNode.mk(true)),
+                                                       new Circuit(CircuitNode.mk(true, Duration.ofSeconds(10)))));
+    assertEquals(true, batch.get(0).getValue());
+
+    pSolver.stop();
+    batch.awaitAll();
+    assertThrows(InterruptedException.class, () -> batch.get(1).getValue());
+
+    BatchCircuitValue stopped = pSolver.solveAll(List.of(new Circuit(CircuitNode.mk(true))));
+    assertTrue(stopped.isDone());
+    assertThrows(InterruptedException.class, () -> stopped.get(0).getValue());
+  }
+}
@@ -0,0 +1,143 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.LeafNode;
+import circuit.NodeType;
+import demo.SequentialSolver;
+import solver.compiled.BitSlicedEvaluator;
+import solver.compiled.CompiledCircuit;
+
+public class BitSlicedTest {
+  /** A leaf whose value is set by the test before every sequential solve. */
+  static class Variable extends LeafNode {
+    boolean value;
+
+    @Override
+    public boolean getValue() {
+      return value;
+    }
+
+    @Override
+    public boolean mayBlock() {
+      return false;
+    }
+  }
+
+  /** Builds a random circuit bottom up, so that later nodes share earlier ones. */
+  static CircuitNode randomCircuit(Random rand, List<? extends CircuitNode> leaves, int nodes) {
+    List<CircuitNode> built = new ArrayList<>(leaves);
+    for (int i = 0; i < nodes; ++i) {
+      NodeType type = NodeType.values()[1 + rand.nextInt(NodeType.values().length - 1)];
+      int arity = switch (type) {
+        case NOT -> 1;
+        case IF -> 3;
+        default -> 2 + rand.nextInt(6);
+      };
+      CircuitNode[] args = new CircuitNode[arity];
+      for (int a = 0; a < arity; ++a) {
+        args[a] = built.get(rand.nextInt(built.size()));
+      }
+      built.add(type == NodeType.GT || type == NodeType.LT
+                ? CircuitNode.mk(type, rand.nextInt(arity + 2), args)
+                : CircuitNode.mk(type, args));
+    }
+    return built.get(built.size() - 1);
+  }
+
+  @Test
+  void agreesWithSequential() throws InterruptedException {
+    SequentialSolver sSolver = new SequentialSolver();
+    for (int seed = 0; seed < 200; ++seed) {
+      Random rand = new Random(seed);
+      List<Variable> variables = new ArrayList<>();
+      for (int i = 0; i < 12; ++i) {
+        variables.add(new Variable());
+      }
+      Circuit circuit = new Circuit(randomCircuit(rand, variables, 60));
+      CompiledCircuit compiled = CompiledCircuit.compile(circuit);
+      BitSlicedEvaluator evaluator = new BitSlicedEvaluator(compiled);
+
+      int words = 3;
+      long[][] leafWords = new long[compiled.getLeafCount()][words];
+      for (long[] leaf : leafWords) {
+        for (int w = 0; w < words; ++w) {
+          leaf[w] = rand.nextLong();
+        }
+      }
+      long[] result = evaluator.evaluate(leafWords);
+      assertEquals(result[1], evaluator.evaluate(column(leafWords, 1)));
+
+      for (int assignment = 0; assignment < 64 * words; ++assignment) {
+        for (int leaf = 0; leaf < compiled.getLeafCount(); ++leaf) {
+          ((Variable) compiled.getLeaf(leaf)).value =
+              (leafWords[leaf][assignment / 64] >>> (assignment % 64) & 1) != 0;
+        }
+        boolean expected = TestUtils.getVal(sSolver.solve(circuit));
+        assertEquals(expected, (result[assignment / 64] >>> (assignment % 64) & 1) != 0,
+                     "Seed " + seed + ", assignment " + assignment);
+      }
+    }
+  }
+
+  private static long[] column(long[][] leafWords, int w) {
+    long[] word = new long[leafWords.length];
+    for (int leaf = 0; leaf < leafWords.length; ++leaf) {
+      word[leaf] = leafWords[leaf][w];
+    }
+    return word;
+  }
+
+  @Test
+  void wideThresholds() throws InterruptedException {
+    // all 2^10 assignments of 10 leaves fit in 16 words
+    List<Variable> variables = new ArrayList<>();
+    for (int i = 0; i < 10; ++i) {
+      variables.add(new Variable());
+    }
+    CircuitNode[] args = variables.toArray(new CircuitNode[0]);
+
+    for (int threshold = 0; threshold <= 11; ++threshold) {
+      for (NodeType type : new NodeType[] {NodeType.GT, NodeType.LT}) {
+        CompiledCircuit compiled = CompiledCircuit.compile(new Circuit(CircuitNode.mk(type, threshold, args)));
+        long[][] leafWords = new long[10][16];
+        for (int assignment = 0; assignment < 1024; ++assignment) {
+          for (int leaf = 0; leaf < 10; ++leaf) {
+            int variable = variables.indexOf(compiled.getLeaf(leaf));
+            if ((assignment >>> variable & 1) != 0) {
+              leafWords[leaf][assignment / 64] |= 1L << (assignment % 64);
+            }
+          }
+        }
+
+        long[] result = new BitSlicedEvaluator(compiled).evaluate(leafWords);
+        for (int assignment = 0; assignment < 1024; ++assignment) {
+          int count = Integer.bitCount(assignment);
+          boolean expected = type == NodeType.GT ? count > threshold : count < threshold;
+          assertEquals(expected, (result[assignment / 64] >>> (assignment % 64) & 1) != 0,
+                       type + " " + threshold + ", assignment " + assignment);
+        }
+      }
+    }
+  }
+
+  @Test
+  void leafCountChecked() throws InterruptedException {
+    CompiledCircuit compiled = CompiledCircuit.compile(new Circuit(
+        CircuitNode.mk(NodeType.AND, new Variable(), new Variable())));
+    BitSlicedEvaluator evaluator = new BitSlicedEvaluator(compiled);
+
+    assertThrows(IllegalArgumentException.class, () -> evaluator.evaluate(new long[1]));
+    assertThrows(IllegalArgumentException.class,
+                 () -> evaluator.evaluate(new long[][] {new long[2], new long[3]}));
+  }
+}
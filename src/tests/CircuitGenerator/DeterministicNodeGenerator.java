@@ -19,7 +19,7 @@ public class DeterministicNodeGenerator extends BalancedRandomCircuitGenerator {
 
   @Override
   protected CircuitNode LeafCreator() {
-    return CircuitNode.mk(leafValue);
+    return CircuitNode.mk(leafValue, leafDelay);
   }
 
   @Override
@@ -1,12 +1,15 @@
 package tests.CircuitGenerator;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.Random;
 
 import circuit.Circuit;
 import circuit.CircuitNode;
-import circuit.LeafNode;
+import circuit.CircuitText;
 import circuit.NodeType;
-import circuit.ThresholdNode;
 
 public abstract class RandomCircuitGenerator {
   protected int currTotal = 0;
@@ -14,6 +17,7 @@ public abstract class RandomCircuitGenerator {
   protected int maxHeight = 0;
   protected Random rand;
   protected int maxArity;
+  protected Duration leafDelay = Duration.ZERO;
 
   public class CircuitWithStats {
     private Circuit circuit;
@@ -54,6 +58,9 @@ public abstract class RandomCircuitGenerator {
 
   public void setRandom(Random rand) { this.rand = rand; }
 
+  /** Sets the time every generated leaf sleeps before returning its value. */
+  public void setLeafDelay(Duration leafDelay) { this.leafDelay = leafDelay; }
+
   protected RandomCircuitGenerator(Random rand, int maxArity) {
       this.rand = rand;
       this.maxArity = maxArity;
@@ -73,66 +80,50 @@ public abstract class RandomCircuitGenerator {
   }
 
   protected CircuitNode LeafCreator() {
-    return CircuitNode.mk(rand.nextBoolean());
+    return CircuitNode.mk(rand.nextBoolean(), leafDelay);
   }
 
   public final void printCircuit(Circuit circuit) {
-    CircuitNode root = circuit.getRoot();
-    print(root);
-    System.out.println();
+    PrintWriter out = new PrintWriter(System.out);
+    try {
+      CircuitText.write(circuit, out);
+    } catch (IOException | InterruptedException e) {
+      System.out.println("Exception happened");
+    }
+    out.println();
+    out.flush();
   }
 
   public void printStatistics() {
     System.out.println("Number of nodes: " + currTotal + ". Non-leaf nodes: " + nonLeafNodeCount);
   }
 
+  /** @return the height of the circuit, walked with an explicit stack so that any depth fits */
   public static int findDepth(Circuit circuit) {
-    var root = circuit.getRoot();
-    return findDepthHelper(root, 0);
-  }
+    ArrayDeque<CircuitNode> nodes = new ArrayDeque<>();
+    ArrayDeque<Integer> depths = new ArrayDeque<>();
+    nodes.push(circuit.getRoot());
+    depths.push(0);
 
-  private static int findDepthHelper(CircuitNode node, int depth) {
-    if (node.getType() == NodeType.LEAF) 
-      return 0;
-    int childDepth = 0;
-    
+    int maxDepth = 0;
     try {
-      CircuitNode[] children = node.getArgs();
-      for (var child : children) {
-        childDepth = Math.max(childDepth, 1 + findDepthHelper(child, depth));
+      while (!nodes.isEmpty()) {
+        CircuitNode node = nodes.pop();
+        int depth = depths.pop();
+        maxDepth = Math.max(maxDepth, depth);
+        if (node.getType() == NodeType.LEAF)
+          continue;
+        for (var child : node.getArgs()) {
+          nodes.push(child);
+          depths.push(depth + 1);
+        }
       }
     } catch (InterruptedException e) {}
-    return childDepth;
+    return maxDepth;
   }
 
   protected abstract boolean leafNodeProbability(int currentDepth);
 
-  private void print(CircuitNode node) {
-    NodeType type = node.getType();
-    try {
-      if (type == NodeType.LEAF) {
-          System.out.print(((LeafNode) node).getValue() ? "T" : "F");
-      } else {
-          System.out.print(type);
-          if (type == NodeType.LT || type == NodeType.GT) {
-              System.out.print(((ThresholdNode) node).getThreshold());
-          }
-          System.out.print("(");
-
-          CircuitNode[] args = node.getArgs();
-          for (int i = 0; i < args.length; i++) {
-              print(args[i]);
-              if (i < args.length - 1) {
-                  System.out.print(", ");
-              }
-          }
-          System.out.print(")");
-      }
-    } catch (InterruptedException e) {
-      System.out.println("Exception happened");
-    }
-  }
-
   protected NodeType generateType(int currentDepth) {
     int numberOfTypes = NodeType.values().length;
     int typeIndex = currentDepth == 0 ? 1 + rand.nextInt(numberOfTypes - 1)
@@ -0,0 +1,107 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.CircuitText;
+import circuit.NodeType;
+import circuit.ThresholdNode;
+import demo.SequentialSolver;
+import tests.CircuitGenerator.BalancedRandomCircuitGenerator;
+import tests.CircuitGenerator.DeepRandomCircuitGenerator;
+import tests.CircuitGenerator.RandomCircuitGenerator;
+
+public class CircuitTextTest {
+  private final SequentialSolver sSolver = new SequentialSolver();
+
+  private static String text(Circuit c) throws IOException, InterruptedException {
+    StringWriter out = new StringWriter();
+    CircuitText.write(c, out);
+    return out.toString();
+  }
+
+  private static Circuit parse(String text) throws IOException {
+    return CircuitText.read(new StringReader(text));
+  }
+
+  @Test
+  void readsPrintedCircuits() throws IOException, InterruptedException {
+    Random rand = new Random(22);
+    PrintStream stdout = System.out;
+    for (int i = 0; i < 100; ++i) {
+      RandomCircuitGenerator generator = i % 2 == 0 ? new BalancedRandomCircuitGenerator(6, rand)
+                                                    : new DeepRandomCircuitGenerator(500, rand);
+      Circuit c = generator.generateCircuit().getCircuit();
+
+      ByteArrayOutputStream printed = new ByteArrayOutputStream();
+      System.setOut(new PrintStream(printed));
+      try {
+        generator.printCircuit(c);
+      } finally {
+        System.setOut(stdout);
+      }
+
+      Circuit read = parse(printed.toString());
+      assertEquals(sSolver.solve(c).getValue(), sSolver.solve(read).getValue());
+      assertEquals(printed.toString().trim(), text(read));
+    }
+  }
+
+  @Test
+  void format() throws IOException, InterruptedException {
+    Circuit c = parse(" AND(T,\n OR( F , GT2(T, F, T)),\tNOT(LT10(F)), IF(T, T, F))\n");
+    assertEquals("AND(T, OR(F, GT2(T, F, T)), NOT(LT10(F)), IF(T, T, F))", text(c));
+
+    CircuitNode gt = c.getRoot().getArgs()[1].getArgs()[1];
+    assertEquals(NodeType.GT, gt.getType());
+    assertEquals(2, ((ThresholdNode) gt).getThreshold());
+    assertEquals(false, sSolver.solve(c).getValue());
+
+    assertEquals("T", text(parse("T")));
+  }
+
+  @Test
+  void channels() throws IOException, InterruptedException {
+    Circuit c = new BalancedRandomCircuitGenerator(8, new Random(7)).generateCircuit().getCircuit();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CircuitText.write(c, Channels.newChannel(bytes));
+
+    Circuit read = CircuitText.read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(text(c), text(read));
+    assertEquals(sSolver.solve(c).getValue(), sSolver.solve(read).getValue());
+  }
+
+  @Test
+  void deepCircuit() throws IOException, InterruptedException {
+    int depth = 1_000_000;
+    String text = text(new Circuit(TestUtils.deepNotLeafNode(depth, CircuitNode.mk(false))));
+    assertEquals(depth * 5L + 1, text.length());
+
+    Circuit read = parse(text);
+    assertEquals(depth, RandomCircuitGenerator.findDepth(read));
+    assertEquals(false, sSolver.solve(read).getValue());
+  }
+
+  @Test
+  void malformedInput() {
+    for (String text : new String[] {"", "AND(T)", "AND(T, F", "OR(T, F))", "AND(T F)", "GT(T, F)",
+                                     "XOR(T, F)", "NOT(T), T", "IF(T, F)", "GT99999999999(T)"}) {
+      IOException e = assertThrows(IOException.class, () -> parse(text), text);
+      assertTrue(e.getMessage().contains("offset"), e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.CircuitValue;
+import circuit.NodeType;
+import demo.SequentialSolver;
+import solver.compiled.CompiledCircuit;
+import solver.compiled.CompiledCircuitSolver;
+import tests.CircuitGenerator.BalancedRandomCircuitGenerator;
+import tests.CircuitGenerator.DeepRandomCircuitGenerator;
+import tests.CircuitGenerator.RandomCircuitGenerator;
+import tests.TestUtils.LeafNodeInterruptsCount;
+import tests.TestUtils.Pair;
+
+public class CompiledCircuitTest {
+  CompiledCircuitSolver cSolver;
+
+  @BeforeEach
+  void initialize() {
+    cSolver = new CompiledCircuitSolver(8);
+  }
+
+  @AfterEach
+  void stop() {
+    cSolver.stop();
+  }
+
+  @Test
+  void sharedNodesCompiledOnce() throws InterruptedException {
+    CircuitNode node = CircuitNode.mk(true);
+    for (int i = 0; i < 40; ++i) {
+      node = CircuitNode.mk(NodeType.AND, node, node);
+    }
+
+    CompiledCircuit compiled = CompiledCircuit.compile(new Circuit(node));
+    assertEquals(41, compiled.getNodeCount());
+    assertEquals(80, compiled.getEdgeCount());
+    assertEquals(1, compiled.getLeafCount());
+    assertEquals(true, TestUtils.getVal(cSolver.solve(compiled)));
+  }
+
+  @Test
+  void deepChainCompiles() throws InterruptedException {
+    CircuitNode node = CircuitNode.mk(false);
+    for (int i = 0; i < 100_000; ++i) {
+      node = CircuitNode.mk(NodeType.NOT, node);
+    }
+
+    CompiledCircuit compiled = CompiledCircuit.compile(new Circuit(node));
+    assertEquals(100_001, compiled.getNodeCount());
+    assertEquals(false, TestUtils.getVal(cSolver.solve(compiled)));
+  }
+
+  @Test
+  void agreesWithSequential() throws InterruptedException {
+    SequentialSolver sSolver = new SequentialSolver();
+    RandomCircuitGenerator[] generators = {
+                                           new DeepRandomCircuitGenerator(1_000, new Random()),
+                                           new BalancedRandomCircuitGenerator(6, new Random())
+                                          };
+    for (var generator : generators) {
+      for (int i = 0; i < 2_000; ++i) {
+        generator.setRandom(new Random(i));
+        Circuit circuit = generator.generateCircuit().getCircuit();
+        CompiledCircuit compiled = CompiledCircuit.compile(circuit);
+
+        boolean sequential = TestUtils.getVal(sSolver.solve(circuit));
+        // a compiled circuit can be solved any number of times
+        assertEquals(sequential, TestUtils.getVal(cSolver.solve(compiled)), "Seed " + i);
+        assertEquals(sequential, TestUtils.getVal(cSolver.solve(compiled)), "Seed " + i);
+      }
+    }
+  }
+
+  @Test
+  void thresholdsKnownBeforeArguments() {
+    assertEquals(true, TestUtils.getVal(cSolver.solve(new Circuit(
+        CircuitNode.mk(NodeType.LT, 5, TestUtils.args(true, true, false))))));
+    assertEquals(false, TestUtils.getVal(cSolver.solve(new Circuit(
+        CircuitNode.mk(NodeType.GT, 3, TestUtils.args(true, true, true))))));
+    assertEquals(false, TestUtils.getVal(cSolver.solve(new Circuit(
+        CircuitNode.mk(NodeType.LT, 0, TestUtils.args(false))))));
+  }
+
+  @Test
+  void unneededLeavesAreInterrupted() {
+    LeafNodeInterruptsCount slow = new LeafNodeInterruptsCount(false, Duration.ofSeconds(10));
+
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.OR,
+                                           CircuitNode.mk(NodeType.AND, slow, CircuitNode.mk(true)),
+                                           CircuitNode.mk(true, Duration.ofMillis(100))));
+
+    Pair<Boolean, Long> pair = TestUtils.measureExecutionMilis(cSolver, c);
+    assertEquals(true, pair.first);
+    assertTrue(pair.second < 1_000, "Elapsed " + pair.second);
+
+    TestUtils.activeWait(100);
+    assertEquals(1, slow.getCountInterrupts());
+  }
+
+  @Test
+  void ifBranchDroppedByCondition() {
+    LeafNodeInterruptsCount slow = new LeafNodeInterruptsCount(true, Duration.ofSeconds(10));
+
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.IF,
+                                           CircuitNode.mk(false, Duration.ofMillis(50)),
+                                           slow,
+                                           CircuitNode.mk(false, Duration.ofMillis(100))));
+
+    Pair<Boolean, Long> pair = TestUtils.measureExecutionMilis(cSolver, c);
+    assertEquals(false, pair.first);
+    assertTrue(pair.second < 1_000, "Elapsed " + pair.second);
+  }
+
+  @Test
+  void sharedNodeNotCancelledWhileNeeded() {
+    LeafNodeInterruptsCount shared = new LeafNodeInterruptsCount(false, Duration.ofMillis(300));
+
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.AND,
+                                           CircuitNode.mk(NodeType.OR, CircuitNode.mk(true), shared),
+                                           CircuitNode.mk(NodeType.NOT, shared)));
+
+    assertEquals(true, TestUtils.getVal(cSolver.solve(c)));
+    assertEquals(1, shared.getCalled());
+    assertEquals(0, shared.getCountInterrupts());
+  }
+
+  @Test
+  void stopInterruptsSolves() {
+    CircuitValue value = cSolver.solve(new Circuit(CircuitNode.mk(true, Duration.ofSeconds(10))));
+    cSolver.stop();
+
+    assertThrows(InterruptedException.class, value::getValue);
+    assertThrows(InterruptedException.class,
+                 () -> cSolver.solve(new Circuit(CircuitNode.mk(true))).getValue());
+  }
+}
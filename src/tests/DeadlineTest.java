@@ -0,0 +1,89 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import circuit.AsyncCircuitValue;
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.NodeType;
+import solver.ParallelCircuitSolver;
+import tests.TestUtils.LeafNodeInterruptsCount;
+
+public class DeadlineTest {
+  ParallelCircuitSolver pSolver;
+
+  @BeforeEach
+  void initialize() {
+    pSolver = new ParallelCircuitSolver(4);
+  }
+
+  @AfterEach
+  void stop() {
+    pSolver.stop();
+  }
+
+  @Test
+  void expiredSolveIsCancelled() {
+    LeafNodeInterruptsCount slow = new LeafNodeInterruptsCount(true, Duration.ofSeconds(10));
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.AND, slow, CircuitNode.mk(true, Duration.ofSeconds(10))));
+
+    long start = System.currentTimeMillis();
+    AsyncCircuitValue value = pSolver.solve(c, Duration.ofMillis(100));
+    assertThrows(InterruptedException.class, value::getValue);
+    long elapsed = System.currentTimeMillis() - start;
+    assertTrue(elapsed >= 100 && elapsed < 1_000, "Elapsed " + elapsed);
+
+    CompletionException e = assertThrows(CompletionException.class,
+                                          () -> value.toCompletionStage().toCompletableFuture().join());
+    assertTrue(e.getCause() instanceof TimeoutException, e.toString());
+
+    TestUtils.activeWait(100);
+    assertEquals(1, slow.getCountInterrupts());
+  }
+
+  @Test
+  void solveWithinDeadlineKeepsValue() throws InterruptedException {
+    AsyncCircuitValue value = pSolver.solve(new Circuit(
+        CircuitNode.mk(NodeType.OR, CircuitNode.mk(false, Duration.ofMillis(20)), CircuitNode.mk(true))),
+                                            Duration.ofSeconds(10));
+    assertEquals(true, value.getValue());
+    // the solver is not affected by the timeout of a completed solve
+    assertEquals(false, pSolver.solve(new Circuit(CircuitNode.mk(false)), Duration.ofSeconds(5)).getValue());
+  }
+
+  @Test
+  void otherSolvesUnaffected() throws InterruptedException {
+    AsyncCircuitValue bounded = pSolver.solve(new Circuit(CircuitNode.mk(true, Duration.ofSeconds(10))),
+                                              Duration.ofMillis(50));
+    AsyncCircuitValue unbounded = pSolver.solve(new Circuit(CircuitNode.mk(true, Duration.ofMillis(300))));
+
+    assertThrows(InterruptedException.class, bounded::getValue);
+    assertEquals(true, unbounded.getValue());
+  }
+
+  @Test
+  void manyDeadlines() {
+    // more solves than workers, queued tasks of expired solves are dropped as well
+    AsyncCircuitValue[] values = new AsyncCircuitValue[500];
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = pSolver.solve(new Circuit(CircuitNode.mk(true, Duration.ofSeconds(10))),
+                                Duration.ofMillis(50 + i % 200));
+    }
+    for (AsyncCircuitValue value : values) {
+      assertThrows(InterruptedException.class, value::getValue);
+    }
+    long elapsed = System.currentTimeMillis() - start;
+    assertTrue(elapsed < 2_000, "Elapsed " + elapsed);
+  }
+}
@@ -0,0 +1,89 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.NodeType;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import solver.ParallelCircuitSolver;
+import tests.TestUtils.LeafNodeInterruptsCount;
+
+public class FlightRecorderTest {
+  private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+    return events.stream().filter(e -> e.getEventType().getName().equals(name)).toList();
+  }
+
+  @Test
+  void solverLifecycleIsRecorded() throws IOException, InterruptedException {
+    Path file = Files.createTempFile("solver", ".jfr");
+    ParallelCircuitSolver pSolver = new ParallelCircuitSolver(4);
+    try (Recording recording = new Recording()) {
+      recording.enable("circuit.SolveSubmitted");
+      recording.enable("circuit.SolveCompleted");
+      recording.enable("circuit.SolveStopped");
+      recording.enable("circuit.LeafEvaluation").withThreshold(Duration.ofMillis(200));
+      recording.enable("circuit.TaskCancelled");
+      recording.enable("circuit.IfBranchCancelled");
+      recording.start();
+
+      LeafNodeInterruptsCount slow = new LeafNodeInterruptsCount(true, Duration.ofSeconds(10));
+      Circuit c = new Circuit(CircuitNode.mk(NodeType.IF,
+                                             CircuitNode.mk(false, Duration.ofMillis(10)),
+                                             slow,
+                                             CircuitNode.mk(false, Duration.ofMillis(300))));
+      assertEquals(false, TestUtils.getVal(pSolver.solve(c)));
+      TestUtils.activeWait(100);
+      assertEquals(1, slow.getCountInterrupts());
+
+      var stopped = pSolver.solve(new Circuit(CircuitNode.mk(true, Duration.ofSeconds(10))));
+      TestUtils.activeWait(50);
+      pSolver.stop();
+      try {
+        stopped.getValue();
+      } catch (InterruptedException e) {
+        // expected, the solver has been stopped
+      }
+
+      recording.stop();
+      recording.dump(file);
+    } finally {
+      pSolver.stop();
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+    Files.delete(file);
+
+    assertEquals(2, named(events, "circuit.SolveSubmitted").size());
+    List<RecordedEvent> completed = named(events, "circuit.SolveCompleted");
+    assertEquals(1, completed.size());
+    assertEquals(false, completed.get(0).getBoolean("value"));
+    assertEquals(1, named(events, "circuit.SolveStopped").size());
+
+    // the condition and the interrupted branch are below the threshold
+    List<RecordedEvent> leaves = named(events, "circuit.LeafEvaluation");
+    assertEquals(1, leaves.size(), leaves.toString());
+    assertEquals(false, leaves.get(0).getBoolean("value"));
+    assertEquals(false, leaves.get(0).getBoolean("interrupted"));
+    assertTrue(leaves.get(0).getClass("leafClass").getName().endsWith("SleepyLeafNode"));
+
+    List<RecordedEvent> branches = named(events, "circuit.IfBranchCancelled");
+    assertEquals(1, branches.size());
+    assertEquals(1, branches.get(0).getInt("index"));
+    assertEquals(true, branches.get(0).getBoolean("started"));
+
+    assertTrue(named(events, "circuit.TaskCancelled").stream()
+                   .anyMatch(e -> e.getString("nodeType").equals("LEAF") && e.getBoolean("running")));
+  }
+}
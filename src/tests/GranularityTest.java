@@ -0,0 +1,99 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.CircuitSolver;
+import circuit.LeafNode;
+import circuit.NodeType;
+import demo.SequentialSolver;
+import solver.GranularityPolicy;
+import solver.ParallelCircuitSolver;
+import solver.SolverOptions;
+import tests.CircuitGenerator.BalancedRandomCircuitGenerator;
+import tests.CircuitGenerator.DeepRandomCircuitGenerator;
+import tests.CircuitGenerator.RandomCircuitGenerator;
+import tests.TestUtils.Pair;
+
+public class GranularityTest {
+  private final GranularityPolicy[] policies = {
+    GranularityPolicy.ALWAYS_FORK,
+    GranularityPolicy.DEFAULT,
+    new GranularityPolicy(1, 0),
+    new GranularityPolicy(1_000, 3),
+  };
+
+  @Test
+  void agreesWithSequential() {
+    CircuitSolver sSolver = new SequentialSolver();
+    RandomCircuitGenerator[] generators = {
+                                           new DeepRandomCircuitGenerator(1_000, new Random()),
+                                           new BalancedRandomCircuitGenerator(8, new Random())
+                                          };
+    for (GranularityPolicy policy : policies) {
+      CircuitSolver pSolver = new ParallelCircuitSolver(4, new SolverOptions().withGranularity(policy));
+      for (var generator : generators) {
+        for (int i = 0; i < 1_000; ++i) {
+          generator.setRandom(new Random(i));
+          Circuit circuit = generator.generateCircuit().getCircuit();
+
+          assertEquals(TestUtils.getVal(sSolver.solve(circuit)), TestUtils.getVal(pSolver.solve(circuit)),
+                       "Seed " + i + ", policy " + policy.getMaxInlineNodes());
+        }
+      }
+      pSolver.stop();
+    }
+  }
+
+  /** A leaf that never blocks, so that its parents can be inlined, counting its evaluations. */
+  static class CountingLeaf extends LeafNode {
+    final AtomicInteger called = new AtomicInteger();
+
+    @Override
+    public boolean getValue() {
+      called.incrementAndGet();
+      return false;
+    }
+
+    @Override
+    public boolean mayBlock() {
+      return false;
+    }
+  }
+
+  @Test
+  void inlineEvaluationShortCircuits() {
+    CircuitSolver pSolver = new ParallelCircuitSolver(4);
+
+    CountingLeaf skipped = new CountingLeaf();
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.AND, CircuitNode.mk(false), skipped,
+                                           CircuitNode.mk(NodeType.NOT, skipped)));
+
+    assertEquals(false, TestUtils.getVal(pSolver.solve(c)));
+    assertEquals(0, skipped.called.get());
+    pSolver.stop();
+  }
+
+  @Test
+  void blockingLeavesAreForked() {
+    CircuitSolver pSolver = new ParallelCircuitSolver(10);
+
+    // inlining the first OR would wait for its slow leaf before reaching the fast one
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.OR,
+                                           CircuitNode.mk(NodeType.OR, CircuitNode.mk(false), CircuitNode.mk(true, Duration.ofSeconds(10))),
+                                           CircuitNode.mk(true, Duration.ofMillis(10))));
+
+    Pair<Boolean, Long> pair = TestUtils.measureExecutionMilis(pSolver, c);
+    assertEquals(true, pair.first);
+    assertTrue(pair.second < 1_000, "Elapsed " + pair.second);
+    pSolver.stop();
+  }
+}
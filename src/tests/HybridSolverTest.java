@@ -0,0 +1,96 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.LeafNode;
+import circuit.NodeType;
+import demo.SequentialSolver;
+import solver.GranularityPolicy;
+import solver.HybridCircuitSolver;
+import solver.HybridCircuitSolver.Engine;
+import solver.SolverOptions;
+import tests.CircuitGenerator.BalancedRandomCircuitGenerator;
+import tests.CircuitGenerator.RandomCircuitGenerator;
+
+public class HybridSolverTest {
+  HybridCircuitSolver hSolver = new HybridCircuitSolver(4, new SolverOptions().withGranularity(GranularityPolicy.ALWAYS_FORK));
+
+  @AfterEach
+  void stop() {
+    hSolver.stop();
+  }
+
+  /** A leaf that takes time while claiming not to block. */
+  static class SlowLeaf extends LeafNode {
+    @Override
+    public boolean getValue() throws InterruptedException {
+      Thread.sleep(10);
+      return true;
+    }
+
+    @Override
+    public boolean mayBlock() {
+      return false;
+    }
+  }
+
+  @Test
+  void agreesWithSequentialSolver() throws InterruptedException {
+    SequentialSolver sSolver = new SequentialSolver();
+    Random rand = new Random(21);
+    for (int i = 0; i < 200; ++i) {
+      RandomCircuitGenerator generator = new BalancedRandomCircuitGenerator(6, rand, 5);
+      Circuit c = generator.generateCircuit().getCircuit();
+      assertEquals(sSolver.solve(c).getValue(), hSolver.solve(c).getValue());
+    }
+    assertTrue(hSolver.getSolves(Engine.SEQUENTIAL) > 0);
+  }
+
+  @Test
+  void blockingLeavesSolvedInParallel() throws InterruptedException {
+    for (int i = 0; i < 20; ++i) {
+      Circuit c = new Circuit(CircuitNode.mk(NodeType.AND, CircuitNode.mk(true, Duration.ofMillis(1)),
+                                             CircuitNode.mk(true)));
+      assertEquals(true, hSolver.solve(c).getValue());
+    }
+    assertEquals(0, hSolver.getSolves(Engine.SEQUENTIAL));
+    assertEquals(20, hSolver.getSolves(Engine.PARALLEL));
+  }
+
+  @Test
+  void smallCircuitsSolvedSequentially() throws InterruptedException {
+    for (int i = 0; i < 15; ++i) {
+      assertEquals(false, hSolver.solve(new Circuit(CircuitNode.mk(NodeType.NOT, CircuitNode.mk(true)))).getValue());
+    }
+    assertEquals(15, hSolver.getSolves(Engine.SEQUENTIAL));
+  }
+
+  @Test
+  void learnsFasterEngine() throws InterruptedException {
+    LeafNode[] leaves = new LeafNode[8];
+    for (int i = 0; i < leaves.length; ++i) {
+      leaves[i] = new SlowLeaf();
+    }
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.AND, leaves));
+
+    // sequential first, as the circuit is small, until the parallel engine has been measured
+    for (int i = 0; i < 32; ++i) {
+      assertEquals(true, hSolver.solve(c).getValue());
+    }
+    long parallel = hSolver.getSolves(Engine.PARALLEL);
+    for (int i = 0; i < 15; ++i) {
+      assertEquals(true, hSolver.solve(c).getValue());
+    }
+    assertTrue(hSolver.getSolves(Engine.PARALLEL) - parallel >= 14,
+               "Parallel solves " + (hSolver.getSolves(Engine.PARALLEL) - parallel));
+  }
+}
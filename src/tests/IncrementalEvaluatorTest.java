@@ -0,0 +1,100 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.NodeType;
+import demo.SequentialSolver;
+import solver.compiled.CompiledCircuit;
+import solver.compiled.IncrementalEvaluator;
+import tests.BitSlicedTest.Variable;
+
+public class IncrementalEvaluatorTest {
+  private final SequentialSolver sSolver = new SequentialSolver();
+
+  @Test
+  void agreesWithSequential() throws InterruptedException {
+    for (int seed = 0; seed < 100; ++seed) {
+      Random rand = new Random(seed);
+      List<Variable> variables = new ArrayList<>();
+      for (int i = 0; i < 20; ++i) {
+        Variable v = new Variable();
+        v.value = rand.nextBoolean();
+        variables.add(v);
+      }
+      Circuit circuit = new Circuit(BitSlicedTest.randomCircuit(rand, variables, 80));
+      CompiledCircuit compiled = CompiledCircuit.compile(circuit);
+      IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled);
+      assertEquals(sSolver.solve(circuit).getValue(), evaluator.evaluate());
+
+      for (int update = 0; update < 50; ++update) {
+        boolean value;
+        if (update % 2 == 0) {
+          int leaf = rand.nextInt(compiled.getLeafCount());
+          ((Variable) compiled.getLeaf(leaf)).value ^= true;
+          value = evaluator.leafChanged(leaf);
+        } else {
+          int[] leaves = new int[1 + rand.nextInt(5)];
+          boolean[] leafValues = new boolean[leaves.length];
+          for (int i = 0; i < leaves.length; ++i) {
+            leaves[i] = rand.nextInt(compiled.getLeafCount());
+            leafValues[i] = rand.nextBoolean();
+            ((Variable) compiled.getLeaf(leaves[i])).value = leafValues[i];
+          }
+          value = evaluator.setLeafValues(leaves, leafValues);
+        }
+        assertEquals(sSolver.solve(circuit).getValue(), value, "seed " + seed + ", update " + update);
+      }
+    }
+  }
+
+  @Test
+  void thresholdsAndBranches() throws InterruptedException {
+    Variable a = new Variable();
+    Variable b = new Variable();
+    Variable condition = new Variable();
+    // IF(condition, GT1(a, b, a), LT1(a, b))
+    Circuit circuit = new Circuit(CircuitNode.mk(NodeType.IF, condition,
+                                                 CircuitNode.mk(NodeType.GT, 1, a, b, a),
+                                                 CircuitNode.mk(NodeType.LT, 1, a, b)));
+    CompiledCircuit compiled = CompiledCircuit.compile(circuit);
+    IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled);
+    assertEquals(true, evaluator.evaluate());
+
+    int aLeaf = compiled.getLeaf(0) == a ? 0 : compiled.getLeaf(1) == a ? 1 : 2;
+    int conditionLeaf = compiled.getLeaf(0) == condition ? 0 : compiled.getLeaf(1) == condition ? 1 : 2;
+    assertEquals(false, evaluator.setLeafValue(aLeaf, true));
+    // a is counted twice by GT
+    assertEquals(true, evaluator.setLeafValue(conditionLeaf, true));
+    assertEquals(false, evaluator.setLeafValue(aLeaf, false));
+    assertEquals(false, evaluator.setLeafValue(aLeaf, false));
+  }
+
+  @Test
+  void deepChain() throws InterruptedException {
+    int depth = 1_000_000;
+    Variable leaf = new Variable();
+    CompiledCircuit compiled = CompiledCircuit.compile(new Circuit(TestUtils.deepNotLeafNode(depth, leaf)));
+    IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled);
+    assertEquals(false, evaluator.evaluate());
+    assertEquals(true, evaluator.setLeafValue(0, true));
+  }
+
+  @Test
+  void updatesNeedAnEvaluation() throws InterruptedException {
+    CompiledCircuit compiled = CompiledCircuit.compile(new Circuit(CircuitNode.mk(NodeType.NOT, new Variable())));
+    IncrementalEvaluator evaluator = new IncrementalEvaluator(compiled);
+    assertThrows(IllegalStateException.class, () -> evaluator.setLeafValue(0, true));
+    assertThrows(IllegalArgumentException.class, () -> evaluator.evaluate(new boolean[2]));
+    assertEquals(true, evaluator.evaluate(new boolean[1]));
+    assertEquals(false, evaluator.setLeafValues(new int[] {0}, new boolean[] {true}));
+  }
+}
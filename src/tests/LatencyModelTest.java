@@ -0,0 +1,81 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.CircuitSolver;
+import circuit.LeafNode;
+import circuit.NodeType;
+import solver.LeafLatencyModel;
+import solver.ParallelCircuitSolver;
+import solver.SolverOptions;
+import tests.TestUtils.Pair;
+
+public class LatencyModelTest {
+  private static final long MS = 1_000_000;
+
+  @Test
+  void averagesPerKey() throws InterruptedException {
+    LeafLatencyModel model = new LeafLatencyModel(0.5);
+    LeafNode fast = (LeafNode) CircuitNode.mk(true, Duration.ofMillis(1));
+    LeafNode slow = (LeafNode) CircuitNode.mk(true, Duration.ofMillis(100));
+    // same delay, same key
+    LeafNode otherSlow = (LeafNode) CircuitNode.mk(false, Duration.ofMillis(100));
+
+    model.record(fast, 1 * MS);
+    model.record(slow, 100 * MS);
+    model.record(otherSlow, 200 * MS);
+
+    assertEquals(1.0 * MS, model.estimateNanos(fast), 1);
+    assertEquals(150.0 * MS, model.estimateNanos(slow), 1);
+    // not seen yet, blocking leaves are estimated by the average of all leaves
+    assertTrue(model.estimateNanos((LeafNode) CircuitNode.mk(true, Duration.ofMillis(7))) > 0);
+    assertEquals(0.0, model.estimateNanos((LeafNode) CircuitNode.mk(true)));
+  }
+
+  @Test
+  void subcircuitEstimates() throws InterruptedException {
+    LeafLatencyModel model = new LeafLatencyModel(1.0);
+    CircuitNode fast = CircuitNode.mk(true, Duration.ofMillis(1));
+    CircuitNode medium = CircuitNode.mk(true, Duration.ofMillis(10));
+    CircuitNode slow = CircuitNode.mk(true, Duration.ofMillis(100));
+    model.record((LeafNode) fast, 1 * MS);
+    model.record((LeafNode) medium, 10 * MS);
+    model.record((LeafNode) slow, 100 * MS);
+
+    assertEquals(1.0 * MS, model.estimateNanos(CircuitNode.mk(NodeType.OR, slow, fast)), 1);
+    assertEquals(10.0 * MS, model.estimateNanos(CircuitNode.mk(NodeType.GT, 1, slow, fast, medium)), 1);
+    assertEquals(10.0 * MS, model.estimateNanos(CircuitNode.mk(NodeType.IF, medium, slow, fast)), 1);
+    assertEquals(10.0 * MS, model.estimateNanos(
+        CircuitNode.mk(NodeType.NOT, CircuitNode.mk(NodeType.AND, medium, slow))), 1);
+  }
+
+  @Test
+  void cheapDecidingArgumentRunsFirst() throws InterruptedException {
+    LeafLatencyModel model = new LeafLatencyModel();
+    // a single worker runs the arguments one after another
+    CircuitSolver pSolver = new ParallelCircuitSolver(1, new SolverOptions().withLatencyModel(model));
+    try {
+      Circuit c = new Circuit(CircuitNode.mk(NodeType.OR,
+                                             CircuitNode.mk(true, Duration.ofMillis(20)),
+                                             CircuitNode.mk(false, Duration.ofMillis(300)),
+                                             CircuitNode.mk(false, Duration.ofMillis(300))));
+      // learn the latencies of both kinds of leaves
+      model.record((LeafNode) CircuitNode.mk(true, Duration.ofMillis(20)), 20 * MS);
+      model.record((LeafNode) CircuitNode.mk(true, Duration.ofMillis(300)), 300 * MS);
+
+      Pair<Boolean, Long> pair = TestUtils.measureExecutionMilis(pSolver, c);
+      assertEquals(true, pair.first);
+      assertTrue(pair.second < 250, "Elapsed " + pair.second);
+      assertTrue(model.estimateNanos((LeafNode) CircuitNode.mk(true, Duration.ofMillis(20))) >= 15 * MS);
+    } finally {
+      pSolver.stop();
+    }
+  }
+}
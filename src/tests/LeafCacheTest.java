@@ -0,0 +1,128 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.CircuitSolver;
+import circuit.CircuitValue;
+import circuit.NodeType;
+import solver.LeafValueCache;
+import solver.ParallelCircuitSolver;
+import solver.SolverOptions;
+import tests.TestUtils.LeafNodeInterruptsCount;
+import tests.TestUtils.Pair;
+
+public class LeafCacheTest {
+  LeafValueCache cache;
+  CircuitSolver pSolver;
+
+  @BeforeEach
+  void initialize() {
+    cache = new LeafValueCache(100, Duration.ofMinutes(1));
+    pSolver = new ParallelCircuitSolver(100, new SolverOptions().withLeafCache(cache));
+  }
+
+  @AfterEach
+  void stop() {
+    pSolver.stop();
+  }
+
+  @Test
+  void repeatedSolvesSkipLeaf() {
+    LeafNodeInterruptsCount leaf = new LeafNodeInterruptsCount(true, Duration.ofMillis(300));
+
+    assertEquals(true, TestUtils.getVal(pSolver.solve(new Circuit(leaf))));
+
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.NOT, CircuitNode.mk(NodeType.NOT, leaf)));
+    for (int i = 0; i < 10; ++i) {
+      Pair<Boolean, Long> pair = TestUtils.measureExecutionMilis(pSolver, c);
+      assertEquals(true, pair.first);
+      assertTrue(pair.second < 100, "Elapsed " + pair.second);
+    }
+
+    assertEquals(1, leaf.getCalled());
+    assertEquals(1, cache.getMisses());
+    assertEquals(10, cache.getHits());
+  }
+
+  @Test
+  void concurrentSolvesComputeOnce() {
+    LeafNodeInterruptsCount leaf = new LeafNodeInterruptsCount(false, Duration.ofMillis(300));
+
+    CircuitValue[] values = new CircuitValue[20];
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = pSolver.solve(new Circuit(CircuitNode.mk(NodeType.NOT, leaf)));
+    }
+    for (CircuitValue value : values) {
+      assertEquals(true, TestUtils.getVal(value));
+    }
+
+    assertEquals(1, leaf.getCalled());
+  }
+
+  @Test
+  void cancelledComputationIsTakenOver() {
+    LeafNodeInterruptsCount leaf = new LeafNodeInterruptsCount(true, Duration.ofMillis(500));
+
+    // the first solve stops needing the leaf after 100 ms, the second one waits for it
+    CircuitValue first = pSolver.solve(new Circuit(CircuitNode.mk(NodeType.AND, leaf,
+                                                   CircuitNode.mk(false, Duration.ofMillis(100)))));
+    TestUtils.activeWait(50);
+    CircuitValue second = pSolver.solve(new Circuit(leaf));
+
+    assertEquals(false, TestUtils.getVal(first));
+    assertEquals(true, TestUtils.getVal(second));
+    assertEquals(2, leaf.getCalled());
+    assertEquals(1, leaf.getCountInterrupts());
+  }
+
+  @Test
+  void expiredValueIsRecomputed() {
+    cache = new LeafValueCache(100, Duration.ofMillis(100));
+    pSolver.stop();
+    pSolver = new ParallelCircuitSolver(10, new SolverOptions().withLeafCache(cache));
+
+    LeafNodeInterruptsCount leaf = new LeafNodeInterruptsCount(true);
+
+    TestUtils.getVal(pSolver.solve(new Circuit(leaf)));
+    TestUtils.getVal(pSolver.solve(new Circuit(leaf)));
+    assertEquals(1, leaf.getCalled());
+
+    TestUtils.activeWait(150);
+    TestUtils.getVal(pSolver.solve(new Circuit(leaf)));
+    assertEquals(2, leaf.getCalled());
+  }
+
+  @Test
+  void leastRecentlyUsedIsEvicted() {
+    cache = new LeafValueCache(2, Duration.ofMinutes(1));
+    pSolver.stop();
+    pSolver = new ParallelCircuitSolver(10, new SolverOptions().withLeafCache(cache));
+
+    LeafNodeInterruptsCount[] leafs = new LeafNodeInterruptsCount[3];
+    for (int i = 0; i < leafs.length; ++i) {
+      leafs[i] = new LeafNodeInterruptsCount(true);
+    }
+
+    TestUtils.getVal(pSolver.solve(new Circuit(leafs[0])));
+    TestUtils.getVal(pSolver.solve(new Circuit(leafs[1])));
+    TestUtils.getVal(pSolver.solve(new Circuit(leafs[0])));
+    TestUtils.getVal(pSolver.solve(new Circuit(leafs[2])));
+    TestUtils.getVal(pSolver.solve(new Circuit(leafs[0])));
+    TestUtils.getVal(pSolver.solve(new Circuit(leafs[1])));
+
+    assertEquals(2, cache.size());
+    assertEquals(2, cache.getEvictions());
+    assertEquals(1, leafs[0].getCalled());
+    assertEquals(2, leafs[1].getCalled());
+    assertEquals(1, leafs[2].getCalled());
+  }
+}
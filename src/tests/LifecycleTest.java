@@ -0,0 +1,105 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import circuit.AsyncCircuitValue;
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.NodeType;
+import solver.BatchCircuitValue;
+import solver.DrainResult;
+import solver.ParallelCircuitSolver;
+import tests.TestUtils.LeafNodeInterruptsCount;
+
+public class LifecycleTest {
+  ParallelCircuitSolver pSolver;
+
+  @BeforeEach
+  void initialize() {
+    pSolver = new ParallelCircuitSolver(4);
+  }
+
+  @AfterEach
+  void stop() {
+    pSolver.stop();
+  }
+
+  @Test
+  void drainLetsSolvesFinish() throws InterruptedException {
+    AsyncCircuitValue value = pSolver.solve(new Circuit(CircuitNode.mk(NodeType.AND,
+                                                                       CircuitNode.mk(true, Duration.ofMillis(300)),
+                                                                       CircuitNode.mk(true))));
+    BatchCircuitValue batch = pSolver.solveAll(new Circuit[] {
+                                                              new Circuit(CircuitNode.mk(false, Duration.ofMillis(200)))
+                                                             });
+
+    DrainResult result = pSolver.drain(Duration.ofSeconds(5));
+    assertEquals(2, result.getCompletedSolves());
+    assertEquals(0, result.getFailedSolves());
+    assertEquals(0, result.getCancelledSolves());
+    assertTrue(result.getDuration().toMillis() >= 250, result.toString());
+
+    assertEquals(true, value.getValue());
+    assertEquals(false, batch.get(0).getValue());
+  }
+
+  @Test
+  void drainReportsFailedSolves() throws InterruptedException {
+    AsyncCircuitValue expiring = pSolver.solve(new Circuit(CircuitNode.mk(true, Duration.ofSeconds(10))),
+                                               Duration.ofMillis(50));
+    AsyncCircuitValue value = pSolver.solve(new Circuit(CircuitNode.mk(true, Duration.ofMillis(100))));
+
+    DrainResult result = pSolver.drain(Duration.ofSeconds(5));
+    assertEquals(1, result.getCompletedSolves());
+    assertEquals(1, result.getFailedSolves());
+    assertEquals(0, result.getCancelledSolves());
+
+    assertEquals(true, value.getValue());
+    assertThrows(InterruptedException.class, expiring::getValue);
+  }
+
+  @Test
+  void solvesRefusedUntilRestart() throws InterruptedException {
+    pSolver.drain(Duration.ofSeconds(1));
+    assertThrows(InterruptedException.class, () -> pSolver.solve(new Circuit(CircuitNode.mk(true))).getValue());
+    assertThrows(InterruptedException.class,
+                 () -> pSolver.solveAll(new Circuit[] {new Circuit(CircuitNode.mk(true))}).get(0).getValue());
+
+    pSolver.restart();
+    assertEquals(true, pSolver.solve(new Circuit(CircuitNode.mk(true, Duration.ofMillis(10)))).getValue());
+  }
+
+  @Test
+  void drainTimeoutCancelsSolves() throws InterruptedException {
+    LeafNodeInterruptsCount slow = new LeafNodeInterruptsCount(true, Duration.ofSeconds(10));
+    AsyncCircuitValue value = pSolver.solve(new Circuit(slow));
+    AsyncCircuitValue fast = pSolver.solve(new Circuit(CircuitNode.mk(false, Duration.ofMillis(20))));
+
+    DrainResult result = pSolver.drain(Duration.ofMillis(200));
+    assertEquals(1, result.getCompletedSolves());
+    assertEquals(1, result.getCancelledSolves());
+    assertTrue(result.getDuration().toMillis() < 1_000, result.toString());
+
+    assertEquals(false, fast.getValue());
+    assertThrows(InterruptedException.class, value::getValue);
+    TestUtils.activeWait(100);
+    assertEquals(1, slow.getCountInterrupts());
+
+    pSolver.restart();
+    assertEquals(true, pSolver.solve(new Circuit(CircuitNode.mk(true))).getValue());
+  }
+
+  @Test
+  void stoppedSolverCannotRestart() {
+    pSolver.stop();
+    assertThrows(IllegalStateException.class, pSolver::restart);
+  }
+}
@@ -0,0 +1,206 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.CircuitText;
+import circuit.LeafNode;
+import circuit.MappedCircuit;
+import circuit.NodeType;
+import circuit.ThresholdNode;
+import demo.SequentialSolver;
+import solver.CircuitOptimizer;
+import solver.GranularityPolicy;
+import solver.ParallelCircuitSolver;
+import solver.SolverOptions;
+import solver.SpeculationPolicy;
+import solver.compiled.CompiledCircuit;
+import tests.CircuitGenerator.BalancedRandomCircuitGenerator;
+import tests.CircuitGenerator.DeepRandomCircuitGenerator;
+import tests.CircuitGenerator.RandomCircuitGenerator;
+import tests.TestUtils.LeafNodeInterruptsCount;
+
+public class MappedCircuitTest {
+  private final SequentialSolver sSolver = new SequentialSolver();
+
+  @TempDir
+  Path dir;
+
+  private MappedCircuit roundTrip(Circuit c) throws IOException, InterruptedException {
+    Path file = dir.resolve("circuit.bin");
+    MappedCircuit.write(c, file);
+    return MappedCircuit.open(file);
+  }
+
+  private static String text(Circuit c) throws IOException, InterruptedException {
+    StringWriter out = new StringWriter();
+    CircuitText.write(c, out);
+    return out.toString();
+  }
+
+  @Test
+  void readsWrittenCircuits() throws IOException, InterruptedException {
+    Random rand = new Random(23);
+    ParallelCircuitSolver pSolver = new ParallelCircuitSolver(4);
+    try {
+      for (int i = 0; i < 100; ++i) {
+        RandomCircuitGenerator generator = i % 2 == 0 ? new BalancedRandomCircuitGenerator(6, rand)
+                                                      : new DeepRandomCircuitGenerator(500, rand);
+        Circuit c = generator.generateCircuit().getCircuit();
+        MappedCircuit mapped = roundTrip(c);
+
+        boolean expected = sSolver.solve(c).getValue();
+        assertEquals(expected, sSolver.solve(mapped).getValue());
+        assertEquals(expected, pSolver.solve(mapped).getValue());
+        assertEquals(text(c), text(mapped));
+      }
+    } finally {
+      pSolver.stop();
+    }
+  }
+
+  @Test
+  void nodesAreCreatedOnDemand() throws IOException, InterruptedException {
+    CircuitNode shared = CircuitNode.mk(NodeType.GT, 1, CircuitNode.mk(true), CircuitNode.mk(false, Duration.ofMillis(3)));
+    MappedCircuit mapped = roundTrip(new Circuit(CircuitNode.mk(NodeType.AND, shared, CircuitNode.mk(NodeType.NOT, shared))));
+    assertEquals(5, mapped.getNodeCount());
+
+    CircuitNode[] args = mapped.getRoot().getArgs();
+    CircuitNode[] again = mapped.getRoot().getArgs();
+    assertNotSame(args[0], again[0]);
+    assertEquals(args[0], again[0]);
+    // the node of the file reachable from both arguments of the root
+    assertEquals(args[0], args[1].getArgs()[0]);
+
+    assertEquals(NodeType.GT, args[0].getType());
+    assertEquals(1, ((ThresholdNode) args[0]).getThreshold());
+    LeafNode slow = (LeafNode) args[0].getArgs()[1];
+    assertTrue(slow.mayBlock());
+    assertEquals(Duration.ofMillis(3), slow.getLatencyKey());
+    assertEquals(false, slow.getValue());
+    assertEquals(false, sSolver.solve(mapped).getValue());
+  }
+
+  @Test
+  void otherLeavesAreEvaluated() throws IOException, InterruptedException {
+    LeafNodeInterruptsCount leaf = new LeafNodeInterruptsCount(true);
+    MappedCircuit mapped = roundTrip(new Circuit(CircuitNode.mk(NodeType.NOT, leaf)));
+    assertEquals(1, leaf.getCalled());
+    assertEquals(false, sSolver.solve(mapped).getValue());
+    assertEquals(1, leaf.getCalled());
+  }
+
+  @Test
+  void deepCircuit() throws IOException, InterruptedException {
+    int depth = 1_000_000;
+    MappedCircuit mapped = roundTrip(new Circuit(TestUtils.deepNotLeafNode(depth, CircuitNode.mk(true))));
+    assertEquals(depth + 1, mapped.getNodeCount());
+    assertEquals(true, sSolver.solve(mapped).getValue());
+    assertEquals(depth, RandomCircuitGenerator.findDepth(mapped));
+  }
+
+  @Test
+  void sharedNodesStayShared() throws IOException, InterruptedException {
+    // every level uses the level below twice, so a traversal of paths visits 2^22 leaves
+    int depth = 22;
+    CircuitNode node = CircuitNode.mk(true, Duration.ofMillis(1));
+    for (int i = 0; i < depth; ++i) {
+      node = CircuitNode.mk(NodeType.AND, node, node);
+    }
+    MappedCircuit mapped = roundTrip(new Circuit(node));
+    assertEquals(depth + 1, mapped.getNodeCount());
+
+    assertEquals(depth + 1, CompiledCircuit.compile(mapped).getNodeCount());
+    CircuitOptimizer.Result optimized = new CircuitOptimizer().optimize(mapped);
+    assertEquals(depth + 1, optimized.getNodesBefore());
+    assertEquals(1, optimized.getNodesAfter());
+    assertEquals(depth + 1, roundTrip(mapped).getNodeCount());
+
+    ParallelCircuitSolver pSolver = new ParallelCircuitSolver(4);
+    try {
+      assertEquals(true, pSolver.solve(mapped).getValue());
+    } finally {
+      pSolver.stop();
+    }
+  }
+
+  @Test
+  void malformedFiles() throws IOException, InterruptedException {
+    Path file = dir.resolve("circuit.bin");
+    MappedCircuit.write(new Circuit(CircuitNode.mk(NodeType.OR, CircuitNode.mk(true), CircuitNode.mk(false))), file);
+    byte[] bytes = Files.readAllBytes(file);
+
+    byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+    byte[] badMagic = bytes.clone();
+    badMagic[0] = 'X';
+    for (byte[] content : new byte[][] {new byte[0], truncated, badMagic}) {
+      Files.write(file, content);
+      assertThrows(IOException.class, () -> MappedCircuit.open(file));
+    }
+  }
+
+  @Test
+  void malformedNodes() throws IOException, InterruptedException {
+    // nodes 0 OR, 1 GT1, 2 NOT, then the leaves
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.OR,
+                                           CircuitNode.mk(NodeType.GT, 1, CircuitNode.mk(true), CircuitNode.mk(false)),
+                                           CircuitNode.mk(NodeType.NOT, CircuitNode.mk(true))));
+    Path file = dir.resolve("circuit.bin");
+    MappedCircuit.write(c, file);
+    byte[] bytes = Files.readAllBytes(file);
+    int nodeCount = 6;
+    int operandsAt = 16 + 8;
+
+    byte[] oneArgumentIf = bytes.clone();
+    oneArgumentIf[16 + 2] = (byte) NodeType.IF.ordinal();
+    byte[] negativeThreshold = bytes.clone();
+    Arrays.fill(negativeThreshold, operandsAt + 4, operandsAt + 8, (byte) 0xff);
+    byte[] argumentlessAnd = bytes.clone();
+    argumentlessAnd[16 + nodeCount - 1] = (byte) NodeType.AND.ordinal();
+    for (byte[] content : new byte[][] {oneArgumentIf, negativeThreshold, argumentlessAnd}) {
+      Files.write(file, content);
+      MappedCircuit mapped = MappedCircuit.open(file);
+      assertThrows(IllegalStateException.class, () -> sSolver.solve(mapped).getValue());
+    }
+  }
+
+  @Test
+  void shortCircuitedNodesAreNotRead() throws IOException, InterruptedException {
+    // nodes 0 IF, 1 and 2 leaves, 3 NOT, 4 AND, then its leaves
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.IF, CircuitNode.mk(true), CircuitNode.mk(true),
+                                           CircuitNode.mk(NodeType.NOT,
+                                                          CircuitNode.mk(NodeType.AND, CircuitNode.mk(true), CircuitNode.mk(false)))));
+    Path file = dir.resolve("circuit.bin");
+    MappedCircuit.write(c, file);
+    byte[] bytes = Files.readAllBytes(file);
+    // a NOT of two arguments, reading it from the file fails
+    bytes[16 + 4] = (byte) NodeType.NOT.ordinal();
+    Files.write(file, bytes);
+    MappedCircuit mapped = MappedCircuit.open(file);
+
+    assertEquals(true, sSolver.solve(mapped).getValue());
+    ParallelCircuitSolver pSolver = new ParallelCircuitSolver(4, new SolverOptions()
+        .withGranularity(GranularityPolicy.ALWAYS_FORK)
+        .withSpeculation(SpeculationPolicy.CONDITION_FIRST));
+    try {
+      assertEquals(true, pSolver.solve(mapped).getValue());
+    } finally {
+      pSolver.stop();
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import circuit.AsyncCircuitValue;
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.LeafNode;
+import circuit.NodeType;
+import solver.GranularityPolicy;
+import solver.ParallelCircuitSolver;
+import solver.ParallelCircuitValue;
+import solver.SolverOptions;
+
+public class MemoryFootprintTest {
+  // 2^17 leaves, every node gets its own task
+  private static final int DEPTH = 17;
+  private static final int NODES = (1 << (DEPTH + 1)) - 1;
+
+  ParallelCircuitSolver pSolver;
+
+  @BeforeEach
+  void initialize() {
+    pSolver = new ParallelCircuitSolver(4, new SolverOptions().withGranularity(GranularityPolicy.ALWAYS_FORK)
+                                                              .withMetrics(true));
+  }
+
+  @AfterEach
+  void stop() {
+    pSolver.stop();
+  }
+
+  /** A leaf blocking until the test opens it. */
+  static class GateLeaf extends LeafNode {
+    final CountDownLatch open = new CountDownLatch(1);
+
+    @Override
+    public boolean getValue() throws InterruptedException {
+      open.await();
+      return true;
+    }
+  }
+
+  /** A leaf whose arguments take long to list, counting how often they are. */
+  static class SlowArgsLeaf extends LeafNode {
+    final AtomicInteger listed = new AtomicInteger();
+
+    @Override
+    public CircuitNode[] getArgs() throws InterruptedException {
+      listed.incrementAndGet();
+      Thread.sleep(2_000);
+      return super.getArgs();
+    }
+
+    @Override
+    public boolean getValue() {
+      return false;
+    }
+  }
+
+  private static CircuitNode tree(int depth) {
+    if (depth == 0) return CircuitNode.mk(true);
+    return CircuitNode.mk(NodeType.AND, tree(depth - 1), tree(depth - 1));
+  }
+
+  private static long usedHeap() {
+    for (int i = 0; i < 3; ++i) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  /** @return the heap retained by a solve whose tree of height {@code depth} is determined */
+  private long retainedWhileGated(int depth) throws InterruptedException {
+    GateLeaf gate = new GateLeaf();
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.AND, gate, tree(depth)));
+    long before = usedHeap();
+
+    AsyncCircuitValue value = pSolver.solve(c);
+    ParallelCircuitValue parallelValue = (ParallelCircuitValue) value;
+    // every leaf of the tree but the gate is evaluated, the tree is determined
+    long deadline = System.currentTimeMillis() + 30_000;
+    while (parallelValue.getMetrics().getLeavesCompleted() < (1 << depth)
+           && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    TestUtils.activeWait(100);
+    long retained = usedHeap() - before;
+
+    gate.open.countDown();
+    assertEquals(true, value.getValue());
+    return retained;
+  }
+
+  @Test
+  void determinedSubtreesAreReleased() throws InterruptedException {
+    // only the value of a determined node is kept, for the parents acquiring it later, so the
+    // heap retained while the solve waits for the gate grows by far less than a task per node
+    long small = retainedWhileGated(DEPTH - 2);
+    long large = retainedWhileGated(DEPTH);
+    int nodes = NODES - ((1 << (DEPTH - 1)) - 1);
+    assertTrue(large - small < nodes * 100L, "Retained " + (large - small) / nodes + " more bytes per node");
+  }
+
+  @Test
+  void shortCircuitedNodesAreNotVisited() throws InterruptedException {
+    SlowArgsLeaf first = new SlowArgsLeaf();
+    SlowArgsLeaf second = new SlowArgsLeaf();
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.OR, CircuitNode.mk(true), first, second));
+
+    long start = System.currentTimeMillis();
+    assertEquals(true, pSolver.solve(c).getValue());
+    long elapsed = System.currentTimeMillis() - start;
+    assertTrue(elapsed < 1_000, "Elapsed " + elapsed);
+    assertEquals(0, first.listed.get() + second.listed.get());
+  }
+
+  @Test
+  void nothingRetainedAfterCompletion() throws InterruptedException {
+    Circuit c = new Circuit(tree(DEPTH));
+    long before = usedHeap();
+
+    AsyncCircuitValue value = pSolver.solve(c);
+    assertEquals(true, value.getValue());
+    WeakReference<AsyncCircuitValue> ref = new WeakReference<>(value);
+    value = null;
+    TestUtils.activeWait(100);
+
+    long retained = usedHeap() - before;
+    assertTrue(retained < NODES * 8L, "Retained " + retained / NODES + " bytes per node");
+    assertNull(ref.get());
+  }
+
+  @Test
+  void refusedSolvesNotRetained() throws InterruptedException {
+    pSolver.drain(Duration.ofSeconds(1));
+    WeakReference<AsyncCircuitValue> ref = new WeakReference<>(pSolver.solve(new Circuit(CircuitNode.mk(true))));
+
+    usedHeap();
+    assertNull(ref.get());
+  }
+}
@@ -0,0 +1,99 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.NodeType;
+import solver.ParallelCircuitSolver;
+import solver.ParallelCircuitValue;
+import solver.SolveMetrics;
+import solver.SolverOptions;
+import tests.TestUtils.LeafNodeInterruptsCount;
+
+public class MetricsTest {
+  private static final long MS = 1_000_000;
+
+  @Test
+  void disabledByDefault() throws InterruptedException {
+    ParallelCircuitSolver pSolver = new ParallelCircuitSolver(2);
+    try {
+      ParallelCircuitValue value = (ParallelCircuitValue) pSolver.solve(new Circuit(
+          CircuitNode.mk(NodeType.AND, CircuitNode.mk(true, Duration.ofMillis(1)), CircuitNode.mk(true))));
+      assertEquals(true, value.getValue());
+      assertNull(value.getMetrics());
+    } finally {
+      pSolver.stop();
+    }
+  }
+
+  @Test
+  void countsTasksLeavesAndWastedWork() throws InterruptedException {
+    LeafNodeInterruptsCount slow = new LeafNodeInterruptsCount(false, Duration.ofSeconds(10));
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.OR, CircuitNode.mk(true, Duration.ofMillis(100)), slow));
+
+    ParallelCircuitSolver pSolver = new ParallelCircuitSolver(4, new SolverOptions().withMetrics(true));
+    try {
+      ParallelCircuitValue value = (ParallelCircuitValue) pSolver.solve(c);
+      assertEquals(true, value.getValue());
+      TestUtils.activeWait(100);
+      assertEquals(1, slow.getCountInterrupts());
+
+      SolveMetrics metrics = value.getMetrics();
+      assertEquals(3, metrics.getNodesCreated());
+      assertEquals(3, metrics.getTasksForked());
+      assertEquals(1, metrics.getTasksCancelled());
+      assertEquals(2, metrics.getLeavesStarted());
+      assertEquals(1, metrics.getLeavesCompleted());
+      assertEquals(1, metrics.getLeavesInterrupted());
+      assertTrue(metrics.getWastedLeafNanos() >= 50 * MS, metrics.toString());
+      assertTrue(metrics.getRootNanos() >= 100 * MS, metrics.toString());
+    } finally {
+      pSolver.stop();
+    }
+  }
+
+  @Test
+  void countsLateRegistrations() throws InterruptedException {
+    CircuitNode shared = CircuitNode.mk(true, Duration.ofMillis(20));
+
+    ParallelCircuitSolver pSolver = new ParallelCircuitSolver(2, new SolverOptions().withMetrics(true));
+    try {
+      ParallelCircuitValue value = (ParallelCircuitValue) pSolver.solve(new Circuit(
+          CircuitNode.mk(NodeType.OR, shared, shared)));
+      assertEquals(true, value.getValue());
+      // the second occurrence registers with the OR determined by the first
+      assertEquals(1, value.getMetrics().getLateRegistrations());
+      assertEquals(2, value.getMetrics().getNodesCreated());
+    } finally {
+      pSolver.stop();
+    }
+  }
+
+  @Test
+  void listenerNotifiedOnCompletion() throws Exception {
+    CompletableFuture<SolveMetrics> notified = new CompletableFuture<>();
+    ParallelCircuitSolver pSolver = new ParallelCircuitSolver(2,
+        new SolverOptions().withMetricsListener(notified::complete));
+    try {
+      ParallelCircuitValue value = (ParallelCircuitValue) pSolver.solve(new Circuit(
+          CircuitNode.mk(NodeType.NOT, CircuitNode.mk(true, Duration.ofMillis(10)))));
+      assertEquals(false, value.getValue());
+
+      SolveMetrics metrics = notified.get(1, TimeUnit.SECONDS);
+      assertSame(value.getMetrics(), metrics);
+      assertTrue(metrics.getRootNanos() >= 10 * MS, metrics.toString());
+    } finally {
+      pSolver.stop();
+    }
+  }
+}
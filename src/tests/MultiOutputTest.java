@@ -0,0 +1,132 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import circuit.CircuitNode;
+import circuit.MultiOutputCircuit;
+import circuit.NodeType;
+import demo.SequentialSolver;
+import solver.BatchCircuitValue;
+import solver.ParallelCircuitSolver;
+import tests.BitSlicedTest.Variable;
+import tests.TestUtils.LeafNodeInterruptsCount;
+
+public class MultiOutputTest {
+  private final SequentialSolver sSolver = new SequentialSolver();
+  private ParallelCircuitSolver pSolver;
+
+  @BeforeEach
+  void initialize() {
+    pSolver = new ParallelCircuitSolver(8);
+  }
+
+  @AfterEach
+  void stop() {
+    pSolver.stop();
+  }
+
+  @Test
+  void agreesWithSeparateSolves() throws InterruptedException {
+    for (int seed = 0; seed < 100; ++seed) {
+      Random rand = new Random(seed);
+      List<Variable> variables = new ArrayList<>();
+      for (int i = 0; i < 10; ++i) {
+        Variable v = new Variable();
+        v.value = rand.nextBoolean();
+        variables.add(v);
+      }
+      // the outputs share the variables and a common subcircuit
+      List<CircuitNode> inputs = new ArrayList<>(variables);
+      inputs.add(BitSlicedTest.randomCircuit(rand, variables, 40));
+      List<CircuitNode> outputs = new ArrayList<>();
+      for (int i = 0; i < 8; ++i) {
+        outputs.add(BitSlicedTest.randomCircuit(rand, inputs, 10));
+      }
+      outputs.add(inputs.get(inputs.size() - 1));
+      MultiOutputCircuit c = new MultiOutputCircuit(outputs);
+
+      BatchCircuitValue values = pSolver.solve(c);
+      values.awaitAll();
+      for (int i = 0; i < c.getOutputCount(); ++i) {
+        assertEquals(sSolver.solve(c.getCircuit(i)).getValue(), values.get(i).getValue(),
+                     "seed " + seed + ", output " + i);
+      }
+    }
+  }
+
+  @Test
+  void sharedLeavesEvaluatedOnce() throws InterruptedException {
+    LeafNodeInterruptsCount shared = new LeafNodeInterruptsCount(true, Duration.ofMillis(50));
+    CircuitNode sum = CircuitNode.mk(NodeType.GT, 1, shared, CircuitNode.mk(true, Duration.ofMillis(10)), shared);
+    MultiOutputCircuit c = new MultiOutputCircuit(
+        CircuitNode.mk(NodeType.AND, shared, sum),
+        CircuitNode.mk(NodeType.NOT, sum),
+        shared,
+        shared);
+
+    BatchCircuitValue values = pSolver.solve(c);
+    values.awaitAll();
+    assertEquals(true, values.get(0).getValue());
+    assertEquals(false, values.get(1).getValue());
+    assertEquals(true, values.get(2).getValue());
+    assertEquals(true, values.get(3).getValue());
+    assertEquals(1, shared.getCalled());
+  }
+
+  @Test
+  void sharedSubcircuitOutlivesDeterminedOutput() throws InterruptedException {
+    LeafNodeInterruptsCount slow = new LeafNodeInterruptsCount(false, Duration.ofMillis(300));
+    CircuitNode shared = CircuitNode.mk(NodeType.NOT, slow);
+    // the first output is determined by its first argument, the second one needs the slow leaf
+    MultiOutputCircuit c = new MultiOutputCircuit(
+        CircuitNode.mk(NodeType.OR, CircuitNode.mk(true, Duration.ofMillis(5)), shared),
+        CircuitNode.mk(NodeType.AND, shared, CircuitNode.mk(true, Duration.ofMillis(5))));
+
+    BatchCircuitValue values = pSolver.solve(c);
+    assertEquals(true, values.get(0).getValue());
+    assertEquals(true, values.get(1).getValue());
+    assertEquals(1, slow.getCalled());
+    assertEquals(0, slow.getCountInterrupts());
+  }
+
+  @Test
+  void cancellingAnOutputKeepsTheOthers() throws InterruptedException {
+    LeafNodeInterruptsCount own = new LeafNodeInterruptsCount(true, Duration.ofSeconds(10));
+    LeafNodeInterruptsCount shared = new LeafNodeInterruptsCount(true, Duration.ofMillis(300));
+    MultiOutputCircuit c = new MultiOutputCircuit(
+        CircuitNode.mk(NodeType.AND, own, shared),
+        CircuitNode.mk(NodeType.NOT, shared));
+
+    BatchCircuitValue values = pSolver.solve(c);
+    Thread.sleep(100);
+    assertTrue(values.get(0).cancel());
+    assertEquals(false, values.get(1).getValue());
+    assertTrue(values.awaitAll(Duration.ofSeconds(1)));
+    assertThrows(InterruptedException.class, () -> values.get(0).getValue());
+
+    // the leaf only the cancelled output needed is interrupted, the shared one is not
+    Thread.sleep(100);
+    assertEquals(1, own.getCountInterrupts());
+    assertEquals(0, shared.getCountInterrupts());
+  }
+
+  @Test
+  void stoppedSolver() {
+    pSolver.stop();
+    BatchCircuitValue values = pSolver.solve(new MultiOutputCircuit(CircuitNode.mk(true), CircuitNode.mk(false)));
+    assertTrue(values.isDone());
+    assertThrows(InterruptedException.class, () -> values.get(1).getValue());
+    assertThrows(IllegalArgumentException.class, () -> new MultiOutputCircuit());
+  }
+}
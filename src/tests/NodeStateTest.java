@@ -0,0 +1,97 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import circuit.CircuitNode;
+import circuit.NodeType;
+import solver.paralell.nodes.ParallelNode;
+
+public class NodeStateTest {
+
+  private int registerConcurrently(ParallelNode node, int children, boolean[] values, AtomicInteger determinedTrue)
+      throws InterruptedException {
+    int threads = 8;
+    AtomicInteger determined = new AtomicInteger();
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; ++t) {
+      int from = children * t / threads;
+      int to = children * (t + 1) / threads;
+      workers[t] = new Thread(() -> {
+        try {
+          for (int i = from; i < to; ++i) {
+            Boolean value = node.registerChild(values[i], i);
+            if (value != null) {
+              determined.incrementAndGet();
+              if (value) determinedTrue.incrementAndGet();
+            }
+          }
+        } catch (InterruptedException e) {}
+      });
+      workers[t].start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    return determined.get();
+  }
+
+  private CircuitNode[] leafs(int count) {
+    CircuitNode[] args = new CircuitNode[count];
+    for (int i = 0; i < count; ++i) {
+      args[i] = CircuitNode.mk(true);
+    }
+    return args;
+  }
+
+  @Test
+  void determinedExactlyOnce() throws InterruptedException {
+    int children = 100_000;
+    boolean[] values = new boolean[children];
+    for (int i = 0; i < children; ++i) {
+      values[i] = i % 3 != 0;
+    }
+    int trueCount = children - (children + 2) / 3;
+
+    CircuitNode[] nodes = {
+      CircuitNode.mk(NodeType.AND, leafs(children)),
+      CircuitNode.mk(NodeType.OR, leafs(children)),
+      CircuitNode.mk(NodeType.GT, trueCount - 1, leafs(children)),
+      CircuitNode.mk(NodeType.GT, trueCount, leafs(children)),
+      CircuitNode.mk(NodeType.LT, trueCount, leafs(children)),
+      CircuitNode.mk(NodeType.LT, trueCount + 1, leafs(children)),
+    };
+    boolean[] expected = {false, true, true, false, false, true};
+
+    for (int i = 0; i < nodes.length; ++i) {
+      ParallelNode node = ParallelNode.mk(nodes[i], null);
+      node.getChildren();
+      AtomicInteger determinedTrue = new AtomicInteger();
+
+      assertEquals(1, registerConcurrently(node, children, values, determinedTrue), "Node " + i);
+      assertEquals(expected[i] ? 1 : 0, determinedTrue.get(), "Node " + i);
+      assertEquals(expected[i], node.isDetermined(), "Node " + i);
+    }
+  }
+
+  @Test
+  void ifNode() throws InterruptedException {
+    ParallelNode node = ParallelNode.mk(CircuitNode.mk(NodeType.IF, leafs(3)), null);
+    node.getChildren();
+
+    assertEquals(null, node.registerChild(true, 2));
+    assertEquals(null, node.registerChild(false, 1));
+    assertEquals(true, node.registerChild(false, 0));
+    assertEquals(true, node.isDetermined());
+
+    node = ParallelNode.mk(CircuitNode.mk(NodeType.IF, leafs(3)), null);
+    node.getChildren();
+    assertEquals(null, node.registerChild(false, 1));
+    assertEquals(false, node.registerChild(false, 2));
+    assertEquals(null, node.registerChild(true, 0));
+    assertEquals(false, node.isDetermined());
+  }
+}
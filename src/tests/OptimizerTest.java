@@ -0,0 +1,201 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import circuit.AsyncCircuitValue;
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.CircuitSolver;
+import circuit.LeafNode;
+import circuit.NodeType;
+import demo.SequentialSolver;
+import solver.CircuitOptimizer;
+import solver.CircuitOptimizer.Result;
+import solver.CircuitOptimizer.Rewrite;
+import solver.ParallelCircuitSolver;
+import solver.SolverOptions;
+import tests.CircuitGenerator.BalancedRandomCircuitGenerator;
+import tests.CircuitGenerator.DeepRandomCircuitGenerator;
+import tests.CircuitGenerator.RandomCircuitGenerator;
+
+public class OptimizerTest {
+  private final SequentialSolver sSolver = new SequentialSolver();
+  private final CircuitOptimizer optimizer = new CircuitOptimizer();
+
+  /** A leaf that returns immediately but claims it may block, so it is never folded. */
+  static class Opaque extends BitSlicedTest.Variable {
+    Opaque(boolean value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean mayBlock() {
+      return true;
+    }
+  }
+
+  @Test
+  void generatedCircuitsAgreeWithSequential() throws InterruptedException {
+    RandomCircuitGenerator[] generators = {
+                                           new DeepRandomCircuitGenerator(1_000, new Random()),
+                                           new BalancedRandomCircuitGenerator(6, new Random())
+                                          };
+    for (var generator : generators) {
+      for (int i = 0; i < 500; ++i) {
+        generator.setRandom(new Random(i));
+        Circuit circuit = generator.generateCircuit().getCircuit();
+        Result result = optimizer.optimize(circuit);
+
+        assertEquals(TestUtils.getVal(sSolver.solve(circuit)),
+                     TestUtils.getVal(sSolver.solve(result.getCircuit())), "Seed " + i);
+        // every leaf is a constant
+        assertEquals(1, result.getNodesAfter());
+      }
+    }
+  }
+
+  @Test
+  void opaqueLeavesAgreeWithSequential() throws InterruptedException {
+    for (int seed = 0; seed < 2_000; ++seed) {
+      Random rand = new Random(seed);
+      List<CircuitNode> leaves = new ArrayList<>();
+      for (int i = 0; i < 8; ++i) {
+        leaves.add(new Opaque(rand.nextBoolean()));
+      }
+      leaves.add(CircuitNode.mk(true));
+      leaves.add(CircuitNode.mk(false));
+      Circuit circuit = new Circuit(BitSlicedTest.randomCircuit(rand, leaves, 80));
+
+      Result result = optimizer.optimize(circuit);
+      assertEquals(TestUtils.getVal(sSolver.solve(circuit)),
+                   TestUtils.getVal(sSolver.solve(result.getCircuit())), "Seed " + seed);
+      assertTrue(result.getNodesAfter() <= result.getNodesBefore(), "Seed " + seed);
+
+      int removed = 0;
+      for (Rewrite rewrite : Rewrite.values()) {
+        removed += result.getRemoved(rewrite);
+      }
+      assertEquals(result.getNodesBefore() - result.getNodesAfter(), removed, "Seed " + seed);
+    }
+  }
+
+  @Test
+  void removalsReportedPerRewrite() throws InterruptedException {
+    CircuitNode x = new Opaque(true);
+    CircuitNode y = new Opaque(false);
+    CircuitNode z = new Opaque(true);
+
+    // OR(z, false) and NOT(NOT(x)) become z and x, GT 0 over (y, z) becomes OR(y, z),
+    // then the nested ANDs merge
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.AND,
+                                           CircuitNode.mk(NodeType.NOT, CircuitNode.mk(NodeType.NOT, x)),
+                                           CircuitNode.mk(NodeType.AND,
+                                                          CircuitNode.mk(NodeType.GT, 0, y, z),
+                                                          CircuitNode.mk(NodeType.OR, z, CircuitNode.mk(false)))));
+
+    Result result = optimizer.optimize(c);
+    assertEquals(10, result.getNodesBefore());
+    // the constant and the OR it decides
+    assertEquals(2, result.getRemoved(Rewrite.CONSTANT_FOLDING));
+    assertEquals(0, result.getRemoved(Rewrite.THRESHOLD_NORMALIZATION));
+    assertEquals(2, result.getRemoved(Rewrite.DOUBLE_NEGATION));
+    assertEquals(1, result.getRemoved(Rewrite.FLATTENING));
+    // AND(x, OR(y, z), z)
+    assertEquals(5, result.getNodesAfter());
+    assertEquals(true, TestUtils.getVal(sSolver.solve(result.getCircuit())));
+    assertEquals(5, optimizer.getTotalRemoved(Rewrite.FLATTENING)
+                    + optimizer.getTotalRemoved(Rewrite.DOUBLE_NEGATION)
+                    + optimizer.getTotalRemoved(Rewrite.CONSTANT_FOLDING));
+  }
+
+  @Test
+  void constantsOfNormalizationAreFolded() throws InterruptedException {
+    // GT 2 over two arguments is false, which decides the AND
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.AND, new Opaque(true),
+                                           CircuitNode.mk(NodeType.GT, 2, new Opaque(true), new Opaque(false))));
+
+    Result result = optimizer.optimize(c);
+    assertEquals(1, result.getNodesAfter());
+    assertEquals(2, result.getRemoved(Rewrite.THRESHOLD_NORMALIZATION));
+    assertEquals(2, result.getRemoved(Rewrite.CONSTANT_FOLDING));
+    assertEquals(false, TestUtils.getVal(sSolver.solve(result.getCircuit())));
+  }
+
+  @Test
+  void sharedNodesAreNotDuplicated() throws InterruptedException {
+    CircuitNode node = new Opaque(true);
+    for (int i = 0; i < 40; ++i) {
+      node = CircuitNode.mk(NodeType.AND, node, CircuitNode.mk(NodeType.AND, node, node));
+    }
+
+    Result result = optimizer.optimize(new Circuit(node));
+    assertTrue(result.getNodesAfter() <= result.getNodesBefore());
+    assertEquals(true, TestUtils.getVal(sSolver.solve(result.getCircuit())));
+  }
+
+  @Test
+  void unchangedCircuitIsReturned() throws InterruptedException {
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.OR, new Opaque(false), new Opaque(true)));
+    Result result = new CircuitOptimizer(EnumSet.of(Rewrite.DOUBLE_NEGATION)).optimize(c);
+
+    assertSame(c, result.getCircuit());
+    assertEquals(0, result.getRemoved(Rewrite.DOUBLE_NEGATION));
+  }
+
+  @Test
+  void solverWithOptimizer() {
+    CircuitSolver pSolver = new ParallelCircuitSolver(4, new SolverOptions().withOptimizer(optimizer));
+    try {
+      // folding the fast leaf decides the OR without waiting for the slow one
+      Circuit c = new Circuit(CircuitNode.mk(NodeType.OR,
+                                             CircuitNode.mk(true, Duration.ofSeconds(10)),
+                                             CircuitNode.mk(NodeType.NOT, CircuitNode.mk(false))));
+      TestUtils.Pair<Boolean, Long> pair = TestUtils.measureExecutionMilis(pSolver, c);
+      assertEquals(true, pair.first);
+      assertTrue(pair.second < 1_000, "Elapsed " + pair.second);
+    } finally {
+      pSolver.stop();
+    }
+  }
+
+  @Test
+  void optimizationRunsWithinTheDeadline() {
+    ParallelCircuitSolver pSolver = new ParallelCircuitSolver(4, new SolverOptions().withOptimizer(optimizer));
+    try {
+      // folded by the optimizer, which waits for it
+      LeafNode slow = new LeafNode() {
+        @Override
+        public boolean getValue() throws InterruptedException {
+          Thread.sleep(1_000);
+          return true;
+        }
+
+        @Override
+        public boolean mayBlock() {
+          return false;
+        }
+      };
+      long start = System.currentTimeMillis();
+      AsyncCircuitValue value = pSolver.solve(new Circuit(CircuitNode.mk(NodeType.NOT, slow)), Duration.ofMillis(100));
+      long elapsed = System.currentTimeMillis() - start;
+      assertTrue(elapsed < 500, "solve blocked for " + elapsed);
+
+      assertThrows(InterruptedException.class, value::getValue);
+      elapsed = System.currentTimeMillis() - start;
+      assertTrue(elapsed < 900, "Expired after " + elapsed);
+    } finally {
+      pSolver.stop();
+    }
+  }
+}
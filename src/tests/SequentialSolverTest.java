@@ -0,0 +1,91 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.NodeType;
+import demo.SequentialSolver;
+import solver.ParallelCircuitSolver;
+import tests.CircuitGenerator.BalancedRandomCircuitGenerator;
+import tests.CircuitGenerator.RandomCircuitGenerator;
+import tests.TestUtils.LeafNodeInterruptsCount;
+
+public class SequentialSolverTest {
+  private final SequentialSolver sSolver = new SequentialSolver();
+
+  @Test
+  void deepNotChain() throws InterruptedException {
+    // far deeper than a 256 KB stack allows for recursion
+    int depth = 1_000_001;
+    Circuit c = new Circuit(TestUtils.deepNotLeafNode(depth, CircuitNode.mk(true)));
+    AtomicReference<Object> result = new AtomicReference<>();
+    Thread deep = new Thread(null, () -> {
+      try {
+        result.set(sSolver.solve(c).getValue());
+      } catch (Throwable e) {
+        result.set(e);
+      }
+    }, "deep", 256 * 1024);
+    deep.start();
+    deep.join();
+    assertEquals(false, result.get());
+    assertEquals(depth, RandomCircuitGenerator.findDepth(c));
+  }
+
+  @Test
+  void deepMixedChain() throws InterruptedException {
+    CircuitNode node = CircuitNode.mk(false);
+    for (int i = 0; i < 1_000_000; ++i) {
+      node = switch (i % 4) {
+        case 0 -> CircuitNode.mk(NodeType.OR, node, CircuitNode.mk(true));
+        case 1 -> CircuitNode.mk(NodeType.AND, CircuitNode.mk(true), node);
+        case 2 -> CircuitNode.mk(NodeType.IF, node, CircuitNode.mk(NodeType.NOT, CircuitNode.mk(true)), node);
+        default -> CircuitNode.mk(NodeType.GT, 0, CircuitNode.mk(false), node);
+      };
+    }
+    // in every four levels OR gives true, AND keeps it, IF negates it and GT keeps it
+    assertEquals(false, sSolver.solve(new Circuit(node)).getValue());
+  }
+
+  @Test
+  void shortCircuits() throws InterruptedException {
+    LeafNodeInterruptsCount skippedAnd = new LeafNodeInterruptsCount(true);
+    LeafNodeInterruptsCount skippedOr = new LeafNodeInterruptsCount(true);
+    LeafNodeInterruptsCount skippedBranch = new LeafNodeInterruptsCount(true);
+    LeafNodeInterruptsCount threshold = new LeafNodeInterruptsCount(true);
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.OR,
+                                           CircuitNode.mk(NodeType.AND, CircuitNode.mk(false), skippedAnd),
+                                           CircuitNode.mk(NodeType.IF, CircuitNode.mk(true),
+                                                          CircuitNode.mk(NodeType.GT, 0, CircuitNode.mk(true), threshold),
+                                                          skippedBranch),
+                                           skippedOr));
+
+    assertEquals(true, sSolver.solve(c).getValue());
+    assertEquals(0, skippedAnd.getCalled());
+    assertEquals(0, skippedOr.getCalled());
+    assertEquals(0, skippedBranch.getCalled());
+    // thresholds evaluate all of their arguments
+    assertEquals(1, threshold.getCalled());
+  }
+
+  @Test
+  void agreesWithParallelSolver() throws InterruptedException {
+    Random rand = new Random(20);
+    ParallelCircuitSolver pSolver = new ParallelCircuitSolver(4);
+    try {
+      for (int i = 0; i < 200; ++i) {
+        RandomCircuitGenerator generator = new BalancedRandomCircuitGenerator(6, rand, 5);
+        Circuit c = generator.generateCircuit().getCircuit();
+        assertEquals(pSolver.solve(c).getValue(), sSolver.solve(c).getValue());
+      }
+    } finally {
+      pSolver.stop();
+    }
+  }
+}
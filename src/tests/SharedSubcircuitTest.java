@@ -0,0 +1,92 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.CircuitSolver;
+import circuit.NodeType;
+import solver.ParallelCircuitSolver;
+import tests.TestUtils.LeafNodeInterruptsCount;
+import tests.TestUtils.Pair;
+
+public class SharedSubcircuitTest {
+  CircuitSolver pSolver;
+
+  @BeforeEach
+  void initialize() {
+    pSolver = new ParallelCircuitSolver(100);
+  }
+
+  @AfterEach
+  void stop() {
+    pSolver.stop();
+  }
+
+  @Test
+  void sharedLeafEvaluatedOnce() {
+    LeafNodeInterruptsCount leaf = new LeafNodeInterruptsCount(true, Duration.ofMillis(200));
+
+    // every level doubles the number of paths to the leaf: 2^40 paths
+    CircuitNode node = leaf;
+    for (int i = 0; i < 40; ++i) {
+      node = CircuitNode.mk(NodeType.AND, node, node);
+    }
+
+    Pair<Boolean, Long> pair = TestUtils.measureExecutionMilis(pSolver, new Circuit(node));
+
+    assertEquals(true, pair.first);
+    assertTrue(pair.second < 1_000, "Elapsed " + pair.second);
+    assertEquals(1, leaf.getCalled());
+  }
+
+  @Test
+  void sharedNodeAsIfConditionAndBranch() {
+    CircuitNode x = CircuitNode.mk(false, Duration.ofMillis(10));
+    CircuitNode y = CircuitNode.mk(true, Duration.ofMillis(10));
+
+    assertEquals(true, TestUtils.getVal(pSolver.solve(new Circuit(CircuitNode.mk(NodeType.IF, x, x, y)))));
+    assertEquals(false, TestUtils.getVal(pSolver.solve(new Circuit(CircuitNode.mk(NodeType.IF, y, x, x)))));
+    assertEquals(true, TestUtils.getVal(pSolver.solve(new Circuit(CircuitNode.mk(NodeType.GT, 1, y, y, x)))));
+  }
+
+  @Test
+  void sharedNodeNotCancelledWhileNeeded() {
+    LeafNodeInterruptsCount shared = new LeafNodeInterruptsCount(false, Duration.ofMillis(300));
+
+    // OR is determined by the fast leaf, but NOT still needs the shared leaf
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.AND,
+                                           CircuitNode.mk(NodeType.OR, CircuitNode.mk(true), shared),
+                                           CircuitNode.mk(NodeType.NOT, shared)));
+
+    assertEquals(true, TestUtils.getVal(pSolver.solve(c)));
+    assertEquals(1, shared.getCalled());
+    assertEquals(0, shared.getCountInterrupts());
+  }
+
+  @Test
+  void sharedNodeCancelledWhenNoParentNeedsIt() {
+    LeafNodeInterruptsCount shared = new LeafNodeInterruptsCount(true, Duration.ofSeconds(10));
+
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.OR,
+                                           CircuitNode.mk(NodeType.AND, shared, CircuitNode.mk(false, Duration.ofMillis(100))),
+                                           CircuitNode.mk(NodeType.NOT, shared),
+                                           CircuitNode.mk(true, Duration.ofMillis(200))));
+
+    Pair<Boolean, Long> pair = TestUtils.measureExecutionMilis(pSolver, c);
+    assertEquals(true, pair.first);
+    assertTrue(pair.second < 1_000, "Elapsed " + pair.second);
+
+    // cancellation may take a bit
+    TestUtils.activeWait(100);
+    assertEquals(1, shared.getCalled());
+    assertEquals(1, shared.getCountInterrupts());
+  }
+}
@@ -0,0 +1,118 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import circuit.AsyncCircuitValue;
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.NodeType;
+import solver.ParallelCircuitSolver;
+import solver.compiled.CompiledCircuitSolver;
+import tests.TestUtils.LeafNodeInterruptsCount;
+import tests.TestUtils.Pair;
+
+public class SolveCancelTest {
+  ParallelCircuitSolver pSolver;
+
+  @BeforeEach
+  void initialize() {
+    pSolver = new ParallelCircuitSolver(2);
+  }
+
+  @AfterEach
+  void stop() {
+    pSolver.stop();
+  }
+
+  @Test
+  void cancelFreesWorkers() {
+    LeafNodeInterruptsCount first = new LeafNodeInterruptsCount(true, Duration.ofSeconds(10));
+    LeafNodeInterruptsCount second = new LeafNodeInterruptsCount(true, Duration.ofSeconds(10));
+    // occupies both workers
+    AsyncCircuitValue value = pSolver.solve(new Circuit(CircuitNode.mk(NodeType.AND, first, second)));
+    TestUtils.activeWait(100);
+
+    assertTrue(value.cancel());
+    assertFalse(value.cancel());
+    assertThrows(InterruptedException.class, value::getValue);
+    CompletionException e = assertThrows(CompletionException.class,
+                                          () -> value.toCompletionStage().toCompletableFuture().join());
+    assertTrue(e.getCause() instanceof CancellationException, e.toString());
+
+    Pair<Boolean, Long> pair = TestUtils.measureExecutionMilis(
+        pSolver, new Circuit(CircuitNode.mk(false, Duration.ofMillis(50))));
+    assertEquals(false, pair.first);
+    assertTrue(pair.second < 1_000, "Elapsed " + pair.second);
+
+    assertEquals(1, first.getCountInterrupts());
+    assertEquals(1, second.getCountInterrupts());
+  }
+
+  @Test
+  void otherSolvesUnaffected() throws InterruptedException {
+    AsyncCircuitValue cancelled = pSolver.solve(new Circuit(CircuitNode.mk(true, Duration.ofSeconds(10))));
+    AsyncCircuitValue other = pSolver.solve(new Circuit(CircuitNode.mk(true, Duration.ofMillis(300))));
+    TestUtils.activeWait(50);
+
+    assertTrue(cancelled.cancel());
+    assertEquals(true, other.getValue());
+    assertEquals(true, pSolver.solve(new Circuit(CircuitNode.mk(true))).getValue());
+  }
+
+  @Test
+  void cancelAfterValueKnown() throws InterruptedException {
+    AsyncCircuitValue value = pSolver.solve(new Circuit(CircuitNode.mk(NodeType.NOT, CircuitNode.mk(true))));
+    assertEquals(false, value.getValue());
+
+    assertFalse(value.cancel());
+    assertEquals(false, value.getValue());
+  }
+
+  @Test
+  void compiledSolveCancelled() {
+    CompiledCircuitSolver cSolver = new CompiledCircuitSolver(2);
+    try {
+      LeafNodeInterruptsCount first = new LeafNodeInterruptsCount(true, Duration.ofSeconds(10));
+      LeafNodeInterruptsCount second = new LeafNodeInterruptsCount(true, Duration.ofSeconds(10));
+      AsyncCircuitValue value = cSolver.solve(new Circuit(CircuitNode.mk(NodeType.AND, first, second)));
+      TestUtils.activeWait(100);
+
+      assertTrue(value.cancel());
+      assertThrows(InterruptedException.class, value::getValue);
+      Pair<Boolean, Long> pair = TestUtils.measureExecutionMilis(
+          cSolver, new Circuit(CircuitNode.mk(false, Duration.ofMillis(50))));
+      assertEquals(false, pair.first);
+      assertTrue(pair.second < 1_000, "Elapsed " + pair.second);
+
+      assertEquals(1, first.getCountInterrupts());
+      assertEquals(1, second.getCountInterrupts());
+    } finally {
+      cSolver.stop();
+    }
+  }
+
+  @Test
+  void sharedSubcircuitCancelled() {
+    LeafNodeInterruptsCount shared = new LeafNodeInterruptsCount(false, Duration.ofSeconds(10));
+    AsyncCircuitValue value = pSolver.solve(new Circuit(CircuitNode.mk(NodeType.OR,
+                                                                       CircuitNode.mk(NodeType.NOT, shared),
+                                                                       shared)));
+    TestUtils.activeWait(100);
+    assertTrue(value.cancel());
+
+    TestUtils.activeWait(100);
+    assertEquals(1, shared.getCalled());
+    assertEquals(1, shared.getCountInterrupts());
+  }
+}
@@ -0,0 +1,153 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.LeafNode;
+import circuit.NodeType;
+import demo.SequentialSolver;
+import solver.LeafLatencyModel;
+import solver.ParallelCircuitSolver;
+import solver.SolverOptions;
+import solver.SpeculationPolicy;
+import solver.SpeculationStats;
+import tests.CircuitGenerator.BalancedRandomCircuitGenerator;
+import tests.CircuitGenerator.DeepRandomCircuitGenerator;
+import tests.CircuitGenerator.RandomCircuitGenerator;
+import tests.TestUtils.LeafNodeInterruptsCount;
+
+public class SpeculationTest {
+  private static ParallelCircuitSolver solver(int parallelism, SpeculationPolicy policy) {
+    return new ParallelCircuitSolver(parallelism, new SolverOptions().withSpeculation(policy));
+  }
+
+  @Test
+  void conditionFirstStartsOnlyChosenBranch() {
+    LeafNodeInterruptsCount chosen = new LeafNodeInterruptsCount(true, Duration.ofMillis(50));
+    LeafNodeInterruptsCount other = new LeafNodeInterruptsCount(false, Duration.ofSeconds(10));
+    Circuit c = new Circuit(CircuitNode.mk(NodeType.IF,
+                                           CircuitNode.mk(true, Duration.ofMillis(100)), chosen, other));
+
+    ParallelCircuitSolver pSolver = solver(4, SpeculationPolicy.CONDITION_FIRST);
+    try {
+      assertEquals(true, TestUtils.getVal(pSolver.solve(c)));
+      assertEquals(1, chosen.getCalled());
+      assertEquals(0, other.getCalled());
+
+      SpeculationStats stats = pSolver.getSpeculationStats();
+      assertEquals(0, stats.getSpeculatedBranches());
+      assertEquals(2, stats.getDeferredBranches());
+      assertEquals(0, stats.getDiscardedBranches());
+    } finally {
+      pSolver.stop();
+    }
+  }
+
+  @Test
+  void eagerCountsDiscardedBranches() {
+    LeafNodeInterruptsCount other = new LeafNodeInterruptsCount(false, Duration.ofSeconds(10));
+    Circuit running = new Circuit(CircuitNode.mk(NodeType.IF,
+                                                 CircuitNode.mk(true, Duration.ofMillis(100)),
+                                                 CircuitNode.mk(true, Duration.ofMillis(50)), other));
+    // the first branch is determined before the condition discards it
+    Circuit determined = new Circuit(CircuitNode.mk(NodeType.IF,
+                                                    CircuitNode.mk(false, Duration.ofMillis(100)),
+                                                    CircuitNode.mk(true, Duration.ofMillis(10)),
+                                                    CircuitNode.mk(false, Duration.ofMillis(150))));
+
+    ParallelCircuitSolver pSolver = solver(4, SpeculationPolicy.EAGER);
+    try {
+      assertEquals(true, TestUtils.getVal(pSolver.solve(running)));
+      TestUtils.activeWait(100);
+      assertEquals(1, other.getCountInterrupts());
+
+      assertEquals(false, TestUtils.getVal(pSolver.solve(determined)));
+
+      SpeculationStats stats = pSolver.getSpeculationStats();
+      assertEquals(4, stats.getSpeculatedBranches());
+      assertEquals(0, stats.getDeferredBranches());
+      assertEquals(2, stats.getDiscardedBranches());
+      assertEquals(1, stats.getDiscardedDeterminedBranches());
+    } finally {
+      pSolver.stop();
+    }
+  }
+
+  @Test
+  void nodePolicyOverridesSolverPolicy() {
+    CircuitNode eager = CircuitNode.mk(NodeType.IF, CircuitNode.mk(true, Duration.ofMillis(50)),
+                                       CircuitNode.mk(true, Duration.ofMillis(10)),
+                                       CircuitNode.mk(false, Duration.ofMillis(10)));
+    CircuitNode lazy = CircuitNode.mk(NodeType.IF, CircuitNode.mk(false, Duration.ofMillis(50)),
+                                      CircuitNode.mk(false, Duration.ofMillis(10)),
+                                      CircuitNode.mk(true, Duration.ofMillis(10)));
+    SpeculationPolicy policy = SpeculationPolicy.CONDITION_FIRST
+        .withNodePolicy(eager, SpeculationPolicy.EAGER);
+
+    ParallelCircuitSolver pSolver = solver(4, policy);
+    try {
+      assertEquals(true, TestUtils.getVal(pSolver.solve(new Circuit(
+          CircuitNode.mk(NodeType.AND, eager, lazy)))));
+      assertEquals(2, pSolver.getSpeculationStats().getSpeculatedBranches());
+      assertEquals(2, pSolver.getSpeculationStats().getDeferredBranches());
+    } finally {
+      pSolver.stop();
+    }
+  }
+
+  @Test
+  void adaptiveSpeculatesOnCheapBranches() {
+    LeafLatencyModel model = new LeafLatencyModel(1.0);
+    CircuitNode cheap = CircuitNode.mk(true, Duration.ofMillis(1));
+    CircuitNode expensive = CircuitNode.mk(false, Duration.ofMillis(300));
+    model.record((LeafNode) cheap, 1_000_000);
+    model.record((LeafNode) expensive, 300_000_000);
+
+    // with a single worker no worker is idle, only the cost bound lets a branch start early
+    ParallelCircuitSolver pSolver = new ParallelCircuitSolver(1, new SolverOptions()
+        .withLatencyModel(model)
+        .withSpeculation(SpeculationPolicy.adaptive(Duration.ofMillis(5))));
+    try {
+      assertEquals(true, TestUtils.getVal(pSolver.solve(new Circuit(
+          CircuitNode.mk(NodeType.IF, CircuitNode.mk(true, Duration.ofMillis(20)), cheap, expensive)))));
+      assertEquals(1, pSolver.getSpeculationStats().getSpeculatedBranches());
+      assertEquals(1, pSolver.getSpeculationStats().getDeferredBranches());
+    } finally {
+      pSolver.stop();
+    }
+  }
+
+  @Test
+  void agreesWithSequential() throws InterruptedException {
+    SequentialSolver sSolver = new SequentialSolver();
+    SpeculationPolicy[] policies = {
+                                    SpeculationPolicy.CONDITION_FIRST,
+                                    SpeculationPolicy.adaptive(Duration.ZERO)
+                                   };
+    RandomCircuitGenerator[] generators = {
+                                           new DeepRandomCircuitGenerator(1_000, new Random()),
+                                           new BalancedRandomCircuitGenerator(6, new Random())
+                                          };
+    for (SpeculationPolicy policy : policies) {
+      ParallelCircuitSolver pSolver = solver(4, policy);
+      try {
+        for (var generator : generators) {
+          for (int i = 0; i < 500; ++i) {
+            generator.setRandom(new Random(i));
+            Circuit circuit = generator.generateCircuit().getCircuit();
+            assertEquals(TestUtils.getVal(sSolver.solve(circuit)),
+                         TestUtils.getVal(pSolver.solve(circuit)), "Seed " + i);
+          }
+        }
+      } finally {
+        pSolver.stop();
+      }
+    }
+  }
+}
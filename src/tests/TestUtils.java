@@ -103,10 +103,10 @@ public class TestUtils {
     }
 
     static CircuitNode deepNotLeafNode(int notCount, CircuitNode node) {
-    if (notCount == 0) {
-      return node;
+    for (int i = 0; i < notCount; ++i) {
+      node = CircuitNode.mk(NodeType.NOT, node);
     }
-    return CircuitNode.mk(NodeType.NOT, deepNotLeafNode(notCount - 1, node));
+    return node;
   }
 
 }
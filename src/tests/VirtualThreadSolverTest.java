@@ -0,0 +1,113 @@
+package tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import circuit.Circuit;
+import circuit.CircuitNode;
+import circuit.CircuitSolver;
+import circuit.CircuitValue;
+import circuit.NodeType;
+import demo.SequentialSolver;
+import solver.VirtualThreadCircuitSolver;
+import tests.CircuitGenerator.BalancedRandomCircuitGenerator;
+import tests.CircuitGenerator.DeepRandomCircuitGenerator;
+import tests.CircuitGenerator.RandomCircuitGenerator;
+import tests.TestUtils.LeafNodeInterruptsCount;
+import tests.TestUtils.Pair;
+
+public class VirtualThreadSolverTest {
+  CircuitSolver vSolver;
+
+  @BeforeEach
+  void initialize() {
+    vSolver = new VirtualThreadCircuitSolver(2);
+  }
+
+  @AfterEach
+  void stop() {
+    vSolver.stop();
+  }
+
+  @Test
+  void manyBlockingLeaves() {
+    CircuitNode[] leafs = new CircuitNode[10_000];
+    for (int i = 0; i < leafs.length; ++i) {
+      leafs[i] = CircuitNode.mk(true, Duration.ofMillis(500));
+    }
+
+    Pair<Boolean, Long> pair = TestUtils.measureExecutionMilis(vSolver, new Circuit(CircuitNode.mk(NodeType.AND, leafs)));
+
+    assertEquals(true, pair.first);
+    assertTrue(pair.second < 3_000, "Elapsed " + pair.second);
+  }
+
+  @Test
+  void cancelledLeavesAreInterrupted() {
+    LeafNodeInterruptsCount[] leafs = new LeafNodeInterruptsCount[100];
+    CircuitNode[] args = new CircuitNode[leafs.length + 1];
+    for (int i = 0; i < leafs.length; ++i) {
+      leafs[i] = new LeafNodeInterruptsCount(false, Duration.ofSeconds(10));
+      args[i] = leafs[i];
+    }
+    args[leafs.length] = CircuitNode.mk(true, Duration.ofMillis(100));
+
+    Pair<Boolean, Long> pair = TestUtils.measureExecutionMilis(vSolver, new Circuit(CircuitNode.mk(NodeType.OR, args)));
+    assertEquals(true, pair.first);
+    assertTrue(pair.second < 1_000, "Elapsed " + pair.second);
+
+    // cancellation may take a bit
+    TestUtils.activeWait(200);
+    for (var leaf : leafs) {
+      assertEquals(1, leaf.getCalled());
+      assertEquals(1, leaf.getCountInterrupts());
+    }
+  }
+
+  @Test
+  void stopInterruptsLeaves() {
+    LeafNodeInterruptsCount[] leafs = new LeafNodeInterruptsCount[100];
+    for (int i = 0; i < leafs.length; ++i) {
+      leafs[i] = new LeafNodeInterruptsCount(true, Duration.ofSeconds(10));
+    }
+    CircuitValue val = vSolver.solve(new Circuit(CircuitNode.mk(NodeType.AND, leafs)));
+
+    // wait to make sure that all leaves started
+    TestUtils.activeWait(300);
+    vSolver.stop();
+
+    try {
+      val.getValue();
+      assertTrue(false, "NOT STOPPED");
+    } catch (InterruptedException e) {}
+
+    TestUtils.activeWait(100);
+    for (var leaf : leafs) {
+      assertEquals(1, leaf.getCountInterrupts());
+    }
+  }
+
+  @Test
+  void agreesWithSequential() {
+    CircuitSolver sSolver = new SequentialSolver();
+    RandomCircuitGenerator[] generators = {
+                                           new DeepRandomCircuitGenerator(1_000, new Random()),
+                                           new BalancedRandomCircuitGenerator(6, new Random())
+                                          };
+    for (var generator : generators) {
+      for (int i = 0; i < 1_000; ++i) {
+        generator.setRandom(new Random(i));
+        Circuit circuit = generator.generateCircuit().getCircuit();
+
+        assertEquals(TestUtils.getVal(sSolver.solve(circuit)), TestUtils.getVal(vSolver.solve(circuit)), "Seed " + i);
+      }
+    }
+  }
+}